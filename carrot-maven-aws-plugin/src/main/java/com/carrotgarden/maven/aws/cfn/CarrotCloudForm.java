@@ -7,26 +7,39 @@
  */
 package com.carrotgarden.maven.aws.cfn;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.digest.DigestUtils;
 
 import org.slf4j.Logger;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.services.cloudformation.AmazonCloudFormation;
-import com.amazonaws.services.cloudformation.AmazonCloudFormationAsyncClient;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.cloudformation.AmazonCloudFormationAsync;
 import com.amazonaws.services.cloudformation.model.CreateStackRequest;
+import com.amazonaws.services.cloudformation.model.CreateStackResult;
 import com.amazonaws.services.cloudformation.model.DeleteStackRequest;
 import com.amazonaws.services.cloudformation.model.DescribeStackEventsRequest;
 import com.amazonaws.services.cloudformation.model.DescribeStackEventsResult;
 import com.amazonaws.services.cloudformation.model.DescribeStacksRequest;
 import com.amazonaws.services.cloudformation.model.DescribeStacksResult;
+import com.amazonaws.services.cloudformation.model.GetTemplateRequest;
+import com.amazonaws.services.cloudformation.model.GetTemplateResult;
 import com.amazonaws.services.cloudformation.model.Parameter;
 import com.amazonaws.services.cloudformation.model.Stack;
 import com.amazonaws.services.cloudformation.model.StackEvent;
 import com.amazonaws.services.cloudformation.model.StackStatus;
 import com.amazonaws.services.cloudformation.model.UpdateStackRequest;
+import com.amazonaws.services.cloudformation.model.UpdateStackResult;
+import com.carrotgarden.maven.aws.util.Util;
 import com.google.common.collect.Lists;
 
 /**
@@ -38,7 +51,78 @@ import com.google.common.collect.Lists;
  */
 public class CarrotCloudForm {
 
-	private final AmazonCloudFormation amazonClient;
+	/**
+	 * stack status reason of a skipped update; matches amazon service error
+	 * message for the same condition
+	 */
+	public static final String NO_UPDATES = "No updates are to be performed.";
+
+	/** @return true if stack was returned by a skipped no-op update */
+	public static boolean isUpdateSkipped(final Stack stack) {
+		return NO_UPDATES.equals(stack.getStackStatusReason());
+	}
+
+	/**
+	 * @return true if update of unchanged stack can be skipped; stack which
+	 *         failed or rolled back must go through update to report its state
+	 */
+	static boolean isSkipAllowed(final Stack stack) {
+		final StackStatus status = StackStatus.fromValue(stack
+				.getStackStatus());
+		switch (status) {
+		case CREATE_COMPLETE:
+		case UPDATE_COMPLETE:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/** stack operation kind; drives stack status polling */
+	private static enum Operation {
+
+		CREATE("create", StackStatus.CREATE_COMPLETE,
+				StackStatus.CREATE_FAILED, false, //
+				StackStatus.CREATE_IN_PROGRESS), //
+
+		DELETE("delete", StackStatus.DELETE_COMPLETE,
+				StackStatus.DELETE_FAILED, true, //
+				StackStatus.DELETE_IN_PROGRESS), //
+
+		UPDATE("update", StackStatus.UPDATE_COMPLETE,
+				StackStatus.UPDATE_ROLLBACK_FAILED, false, //
+				StackStatus.UPDATE_IN_PROGRESS,
+				StackStatus.UPDATE_COMPLETE_CLEANUP_IN_PROGRESS), //
+
+		;
+
+		final String label;
+
+		/** status of successful operation */
+		final StackStatus success;
+
+		/** status reported on timeout or polling error */
+		final StackStatus failure;
+
+		/** missing stack means success */
+		final boolean isMissingSuccess;
+
+		/** status which requires more polling */
+		final List<StackStatus> progressList;
+
+		Operation(final String label, final StackStatus success,
+				final StackStatus failure, final boolean isMissingSuccess,
+				final StackStatus... progress) {
+			this.label = label;
+			this.success = success;
+			this.failure = failure;
+			this.isMissingSuccess = isMissingSuccess;
+			this.progressList = Arrays.asList(progress);
+		}
+
+	}
+
+	private final AmazonCloudFormationAsync amazonClient;
 
 	private final AWSCredentials credentials;
 	private final String endpoint;
@@ -103,17 +187,41 @@ public class CarrotCloudForm {
 
 		final DescribeStacksRequest request = new DescribeStacksRequest();
 
-		final DescribeStacksResult result = amazonClient
-				.describeStacks(request);
+		request.withStackName(name);
+
+		try {
+
+			final DescribeStacksResult result = amazonClient
+					.describeStacks(request);
+
+			return firstStack(result);
+
+		} catch (final Exception e) {
+
+			if (isStackMissing(e)) {
+				return null;
+			}
+
+			throw e;
 
+		}
+
+	}
+
+	private Stack firstStack(final DescribeStacksResult result) {
 		for (final Stack stack : result.getStacks()) {
 			if (name.equals(stack.getStackName())) {
 				return stack;
 			}
 		}
-
 		return null;
+	}
 
+	/** amazon reports unknown stack name as validation error */
+	private boolean isStackMissing(final Exception e) {
+		return e instanceof AmazonServiceException
+				&& e.getMessage() != null
+				&& e.getMessage().contains("does not exist");
 	}
 
 	private boolean isStackValid(final Stack stack) {
@@ -135,16 +243,11 @@ public class CarrotCloudForm {
 
 	}
 
-	private AmazonCloudFormation newClient() {
-
-		final AmazonCloudFormation amazonClient = new AmazonCloudFormationAsyncClient(
-				credentials);
+	private AmazonCloudFormationAsync newClient() {
 
 		logger.info("stack endpoint : {}", endpoint);
 
-		amazonClient.setEndpoint(endpoint);
-
-		return amazonClient;
+		return CloudFormClientCache.client(credentials, endpoint);
 
 	}
 
@@ -175,7 +278,7 @@ public class CarrotCloudForm {
 
 		Collections.reverse(stackEvents);
 
-		logger.info("stack events:");
+		logger.info("stack events [" + name + "]:");
 
 		for (final StackEvent event : stackEvents) {
 
@@ -207,19 +310,29 @@ public class CarrotCloudForm {
 
 	}
 
-	private void sleep() throws Exception {
+	/** block until asynchronous operation is complete */
+	private static Stack await(final Future<Stack> future) throws Exception {
 		try {
-			Thread.sleep(waitBetweenAttempts * 1000);
-		} catch (final InterruptedException ie) {
-			throw new IllegalStateException("operation interrupted; "
-					+ "resources are left in inconsistent state; "
-					+ "requires manual intervention");
+			return future.get();
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
 		}
 	}
 
 	/**
 	 */
 	public Stack stackCreate() throws Exception {
+		return await(stackCreateAsync());
+	}
+
+	/**
+	 * submit create request and poll stack status without blocking caller
+	 */
+	public StackFuture stackCreateAsync() {
 
 		final CreateStackRequest request = new CreateStackRequest();
 
@@ -227,31 +340,109 @@ public class CarrotCloudForm {
 		request.withParameters(paramList);
 		request.withTemplateBody(template);
 
-		amazonClient.createStack(request);
+		final StackFuture future = new StackFuture();
 
-		final Stack stack = waitForStackCreate();
+		try {
+			amazonClient.createStackAsync(request,
+					new AsyncHandler<CreateStackRequest, CreateStackResult>() {
+						@Override
+						public void onError(final Exception e) {
+							future.fail(e);
+						}
+
+						@Override
+						public void onSuccess(final CreateStackRequest request,
+								final CreateStackResult result) {
+							waitForStack(Operation.CREATE, future);
+						}
+					});
+		} catch (final Exception e) {
+			future.fail(e);
+		}
 
-		return stack;
+		return future;
 
 	}
 
 	/**
 	 */
 	public Stack stackDelete() throws Exception {
+		return await(stackDeleteAsync());
+	}
+
+	/**
+	 * submit delete request and poll stack status without blocking caller
+	 */
+	public StackFuture stackDeleteAsync() {
 
 		final DeleteStackRequest request = new DeleteStackRequest();
 
 		request.withStackName(name);
 
-		amazonClient.deleteStack(request);
+		final StackFuture future = new StackFuture();
 
-		final Stack stack = waitForStackDelete();
+		try {
+			amazonClient.deleteStackAsync(request,
+					new AsyncHandler<DeleteStackRequest, Void>() {
+						@Override
+						public void onError(final Exception e) {
+							future.fail(e);
+						}
+
+						@Override
+						public void onSuccess(final DeleteStackRequest request,
+								final Void result) {
+							waitForStack(Operation.DELETE, future);
+						}
+					});
+		} catch (final Exception e) {
+			future.fail(e);
+		}
 
-		return stack;
+		return future;
 
 	}
 
+	/**
+	 * submit update unless template and parameters are unchanged;
+	 * 
+	 * @return updated stack, or current stack with {@link #NO_UPDATES} reason
+	 *         when update was skipped
+	 */
 	public Stack stackUpdate() throws Exception {
+		return await(stackUpdateAsync());
+	}
+
+	/**
+	 * submit update request and poll stack status without blocking caller;
+	 * fingerprint check is done in caller thread
+	 */
+	public StackFuture stackUpdateAsync() throws Exception {
+
+		final StackFuture future = new StackFuture();
+
+		final Stack current = findStack();
+
+		if (current == null) {
+			future.succeed(newStackWithStatus(
+					StackStatus.UPDATE_ROLLBACK_FAILED,
+					"stack update invalid/missing"));
+			return future;
+		}
+
+		final String fingerprintLocal = fingerprintLocal();
+		final String fingerprintStack = fingerprintStack(current);
+
+		logger.info("stack update fingerprint [" + name + "]; local="
+				+ fingerprintLocal + " stack=" + fingerprintStack);
+
+		if (fingerprintLocal.equals(fingerprintStack)
+				&& isSkipAllowed(current)) {
+			logger.info("stack update skipped [" + name + "]; no changes");
+			current.setStackStatusReason(NO_UPDATES);
+			future.succeed(current);
+			return future;
+		}
 
 		final UpdateStackRequest request = new UpdateStackRequest();
 
@@ -259,153 +450,201 @@ public class CarrotCloudForm {
 		request.withParameters(paramList);
 		request.withTemplateBody(template);
 
-		amazonClient.updateStack(request);
-
-		final Stack stack = waitForStackUpdate();
+		try {
+			amazonClient.updateStackAsync(request,
+					new AsyncHandler<UpdateStackRequest, UpdateStackResult>() {
+						@Override
+						public void onError(final Exception e) {
+							if (NO_UPDATES.equals(e.getMessage())) {
+								logger.info("stack update skipped [" + name
+										+ "]; " + e.getMessage());
+								if (isSkipAllowed(current)) {
+									current.setStackStatusReason(NO_UPDATES);
+								}
+								future.succeed(current);
+							} else {
+								future.fail(e);
+							}
+						}
+
+						@Override
+						public void onSuccess(final UpdateStackRequest request,
+								final UpdateStackResult result) {
+							waitForStack(Operation.UPDATE, future);
+						}
+					});
+		} catch (final Exception e) {
+			future.fail(e);
+		}
 
-		return stack;
+		return future;
 
 	}
 
-	private Stack waitForStackCreate() throws Exception {
+	/**
+	 * fingerprint of local template and parameters; template parameters
+	 * which are not provided take template default values
+	 */
+	@SuppressWarnings("rawtypes")
+	public String fingerprintLocal() throws Exception {
 
-		final long timeStart = System.currentTimeMillis();
+		final Map<String, String> paramMap = new TreeMap<String, String>();
 
-		while (true) {
+		final Map templateMap = Util.jsonLoad(template, Map.class);
 
-			if (isTimeoutPending(timeStart)) {
-				return newStackWithStatus(StackStatus.CREATE_FAILED,
-						"stack create timeout");
-			}
+		final Map declareMap = (Map) templateMap
+				.get(CloudForm.TEMPLATE_PARAMETERS);
 
-			Stack stack = null;
-			try {
-				stack = findStack();
-			} catch (final Exception e) {
-				return newStackWithStatus(StackStatus.CREATE_FAILED,
-						e.toString());
+		if (declareMap != null) {
+			for (final Object key : declareMap.keySet()) {
+				final Map entry = (Map) declareMap.get(key);
+				final Object value = entry == null ? null : entry
+						.get("Default");
+				paramMap.put(key.toString(), Util.stringNullOrValue(value));
 			}
+		}
 
-			if (!isStackValid(stack)) {
-				return newStackWithStatus(StackStatus.CREATE_FAILED,
-						"stack create invalid/missing");
-			}
+		for (final Parameter param : paramList) {
+			paramMap.put(param.getParameterKey(), param.getParameterValue());
+		}
 
-			final StackStatus status = StackStatus.fromValue(stack
-					.getStackStatus());
-
-			switch (status) {
-			case CREATE_IN_PROGRESS:
-				final long timeCurrent = System.currentTimeMillis();
-				final long timeDiff = timeCurrent - timeStart;
-				logger.info("stack create in progress; time=" + timeDiff / 1000);
-				sleep();
-				continue;
-			case CREATE_COMPLETE:
-				logger.info("stack create success");
-				printStackEvents();
-				return stack;
-			default:
-				logger.error("stack create failure");
-				return stack;
-			}
+		return fingerprint(template, paramMap);
 
+	}
+
+	/** fingerprint of deployed stack template and parameters */
+	public String fingerprintStack(final Stack stack) throws Exception {
+
+		final GetTemplateRequest request = new GetTemplateRequest();
+
+		request.withStackName(name);
+
+		final GetTemplateResult result = amazonClient.getTemplate(request);
+
+		final Map<String, String> paramMap = new TreeMap<String, String>();
+
+		for (final Parameter param : stack.getParameters()) {
+			paramMap.put(param.getParameterKey(), param.getParameterValue());
 		}
 
+		return fingerprint(result.getTemplateBody(), paramMap);
+
 	}
 
-	private Stack waitForStackDelete() throws Exception {
+	private static String fingerprint(final String template,
+			final Map<String, String> paramMap) {
 
-		final long timeStart = System.currentTimeMillis();
+		final StringBuilder text = new StringBuilder(template.length() + 256);
 
-		while (true) {
+		text.append(template);
 
-			if (isTimeoutPending(timeStart)) {
-				return newStackWithStatus(StackStatus.DELETE_FAILED,
-						"stack delete timeout");
-			}
+		for (final Map.Entry<String, String> entry : paramMap.entrySet()) {
+			text.append('\n');
+			text.append(entry.getKey());
+			text.append('=');
+			text.append(entry.getValue());
+		}
 
-			Stack stack = null;
-			try {
-				stack = findStack();
-			} catch (final Exception e) {
-				return newStackWithStatus(StackStatus.DELETE_FAILED,
-						e.toString());
-			}
+		return DigestUtils.shaHex(text.toString());
 
-			if (!isStackValid(stack)) {
-				return newStackWithStatus(StackStatus.DELETE_COMPLETE,
-						"stack delete invalid/missing");
-			}
+	}
 
-			final StackStatus status = StackStatus.fromValue(stack
-					.getStackStatus());
-
-			switch (status) {
-			case DELETE_IN_PROGRESS:
-				final long timeCurrent = System.currentTimeMillis();
-				final long timeDiff = timeCurrent - timeStart;
-				logger.info("stack delete in progress; time=" + timeDiff / 1000);
-				sleep();
-				continue;
-			case DELETE_COMPLETE:
-				logger.info("stack delete complete");
-				printStackEvents();
-				return stack;
-			default:
-				logger.error("stack delete failed");
-				return stack;
-			}
+	private void waitForStack(final Operation operation,
+			final StackFuture future) {
+		pollStack(operation, System.currentTimeMillis(), future);
+	}
+
+	/** issue one asynchronous status query; reschedule while in progress */
+	private void pollStack(final Operation operation, final long timeStart,
+			final StackFuture future) {
 
+		if (isTimeoutPending(timeStart)) {
+			future.succeed(newStackWithStatus(operation.failure, "stack "
+					+ operation.label + " timeout"));
+			return;
 		}
 
-	}
+		final DescribeStacksRequest request = new DescribeStacksRequest();
 
-	private Stack waitForStackUpdate() throws Exception {
+		request.withStackName(name);
 
-		final long timeStart = System.currentTimeMillis();
+		try {
+			amazonClient.describeStacksAsync(request,
+					new AsyncHandler<DescribeStacksRequest, DescribeStacksResult>() {
+						@Override
+						public void onError(final Exception e) {
+							if (isStackMissing(e)) {
+								onStack(operation, timeStart, future, null);
+							} else {
+								future.succeed(newStackWithStatus(
+										operation.failure, e.toString()));
+							}
+						}
+
+						@Override
+						public void onSuccess(
+								final DescribeStacksRequest request,
+								final DescribeStacksResult result) {
+							onStack(operation, timeStart, future,
+									firstStack(result));
+						}
+					});
+		} catch (final Exception e) {
+			future.succeed(newStackWithStatus(operation.failure, e.toString()));
+		}
 
-		while (true) {
+	}
 
-			if (isTimeoutPending(timeStart)) {
-				return newStackWithStatus(StackStatus.UPDATE_ROLLBACK_FAILED,
-						"stack update timeout");
-			}
+	private void onStack(final Operation operation, final long timeStart,
+			final StackFuture future, final Stack stack) {
 
-			Stack stack = null;
-			try {
-				stack = findStack();
-			} catch (final Exception e) {
-				return newStackWithStatus(StackStatus.UPDATE_ROLLBACK_FAILED,
-						e.toString());
-			}
+		final String label = operation.label;
 
-			if (!isStackValid(stack)) {
-				return newStackWithStatus(StackStatus.UPDATE_ROLLBACK_FAILED,
-						"stack update invalid/missing");
+		if (!isStackValid(stack)) {
+			if (operation.isMissingSuccess) {
+				future.succeed(newStackWithStatus(operation.success, "stack "
+						+ label + " invalid/missing"));
+			} else {
+				future.succeed(newStackWithStatus(operation.failure, "stack "
+						+ label + " invalid/missing"));
 			}
+			return;
+		}
+
+		final StackStatus status = StackStatus.fromValue(stack
+				.getStackStatus());
+
+		if (operation.progressList.contains(status)) {
+
+			final long timeCurrent = System.currentTimeMillis();
+			final long timeDiff = timeCurrent - timeStart;
+			logger.info("stack " + label + " in progress [" + name
+					+ "]; time=" + timeDiff / 1000);
+
+			CloudFormClientCache.scheduler().schedule(new Runnable() {
+				@Override
+				public void run() {
+					pollStack(operation, timeStart, future);
+				}
+			}, waitBetweenAttempts, TimeUnit.SECONDS);
+
+			return;
 
-			final StackStatus status = StackStatus.fromValue(stack
-					.getStackStatus());
-
-			switch (status) {
-			case UPDATE_IN_PROGRESS:
-				final long timeCurrent = System.currentTimeMillis();
-				final long timeDiff = timeCurrent - timeStart;
-				logger.info("stack update in progress; time=" + timeDiff / 1000);
-				sleep();
-				continue;
-			case UPDATE_COMPLETE:
-				logger.info("stack update complete");
+		}
+
+		if (status == operation.success) {
+			logger.info("stack " + label + " success [" + name + "]");
+			try {
 				printStackEvents();
-				return stack;
-			default:
-				logger.error("stack updtae failed");
-				return stack;
+			} catch (final Exception e) {
+				logger.warn("stack events failure [" + name + "]", e);
 			}
-
+		} else {
+			logger.error("stack " + label + " failure [" + name + "]");
 		}
 
+		future.succeed(stack);
+
 	}
 
 }
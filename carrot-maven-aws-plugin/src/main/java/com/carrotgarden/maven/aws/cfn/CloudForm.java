@@ -14,7 +14,6 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.maven.settings.Server;
 import org.slf4j.Logger;
 
@@ -38,6 +37,16 @@ public abstract class CloudForm extends CarrotMojo {
 	 */
 	public static final String TEMPLATE_PARAMETERS = "Parameters";
 
+	/**
+	 * amazon template entry:
+	 * 
+	 * <a href=
+	 * "http://docs.amazonwebservices.com/AWSCloudFormation/latest/UserGuide/outputs-section-structure.html"
+	 * > outputs-section-structure </a>
+	 * 
+	 */
+	public static final String TEMPLATE_OUTPUTS = "Outputs";
+
 	/**
 	 * AWS CloudFormation stack name; must be unique under your aws account /
 	 * region; alternatively, see {@link #stackNameProperty}
@@ -115,6 +124,11 @@ public abstract class CloudForm extends CarrotMojo {
 		return amazonEndpoint(stackEndpoint, stackEndpintFormat);
 	}
 
+	/** end point for explicit region, from {@link #stackEndpintFormat} */
+	protected String stackEndpoint(final String region) {
+		return String.format(stackEndpintFormat, region);
+	}
+
 	//
 
 	protected Map<String, String> loadPluginProperties() throws Exception {
@@ -146,6 +160,28 @@ public abstract class CloudForm extends CarrotMojo {
 			final Map<String, String> stackParams //
 	) throws Exception {
 
+		return newCloudFormation(stackName(), templateFile, stackParams);
+
+	}
+
+	protected CarrotCloudForm newCloudFormation( //
+			final String stackName, //
+			final File templateFile, //
+			final Map<String, String> stackParams //
+	) throws Exception {
+
+		return newCloudFormation(stackName, stackEndpoint(), templateFile,
+				stackParams);
+
+	}
+
+	protected CarrotCloudForm newCloudFormation( //
+			final String stackName, //
+			final String stackEndpoint, //
+			final File templateFile, //
+			final Map<String, String> stackParams //
+	) throws Exception {
+
 		/** */
 
 		final String stackTemplate = safeTemplate(templateFile);
@@ -172,8 +208,8 @@ public abstract class CloudForm extends CarrotMojo {
 				600);
 
 		final CarrotCloudForm formation = new CarrotCloudForm(logger,
-				stackName(), stackTemplate, stackParams, stackTimeout,
-				credentials, stackEndpoint());
+				stackName, stackTemplate, stackParams, stackTimeout,
+				credentials, stackEndpoint);
 
 		return formation;
 
@@ -183,29 +219,30 @@ public abstract class CloudForm extends CarrotMojo {
 		if (templateFile == null || !templateFile.exists()) {
 			return "{}";
 		} else {
-			return FileUtils.readFileToString(templateFile);
+			return TemplateCache.load(templateFile).text;
 		}
 	}
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	protected Set<String> loadParameterNames(final File templateFile)
 			throws Exception {
+		return loadSectionNames(templateFile, TEMPLATE_PARAMETERS);
+	}
 
-		final Set<String> nameSet = new TreeSet<String>();
-
-		if (templateFile == null || !templateFile.exists()) {
-			return nameSet;
-		}
+	protected Set<String> loadOutputNames(final File templateFile)
+			throws Exception {
+		return loadSectionNames(templateFile, TEMPLATE_OUTPUTS);
+	}
 
-		final Map templateMap = Util.jsonLoad(templateFile, Map.class);
+	protected Set<String> loadSectionNames(final File templateFile,
+			final String section) throws Exception {
 
-		final Map paramMap = (Map) templateMap.get(TEMPLATE_PARAMETERS);
+		final Set<String> nameSet = new TreeSet<String>();
 
-		if (paramMap == null) {
+		if (templateFile == null || !templateFile.exists()) {
 			return nameSet;
 		}
 
-		nameSet.addAll(paramMap.keySet());
+		nameSet.addAll(TemplateCache.load(templateFile).sectionNames(section));
 
 		return nameSet;
 
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.cfn;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.services.cloudformation.AmazonCloudFormationAsync;
+import com.amazonaws.services.cloudformation.AmazonCloudFormationAsyncClient;
+
+/**
+ * cloud formation clients shared by all plug-in executions in a build,
+ * keyed by end point and credentials; all clients share one request executor
+ * and one status polling scheduler
+ */
+public class CloudFormClientCache {
+
+	/** number of threads which issue amazon requests */
+	public static final int REQUEST_THREADS = 8;
+
+	private static final Map<String, AmazonCloudFormationAsync> clientMap = new HashMap<String, AmazonCloudFormationAsync>();
+
+	private static final ExecutorService executor = Executors
+			.newFixedThreadPool(REQUEST_THREADS, newFactory("cfn-request"));
+
+	private static final ScheduledExecutorService scheduler = Executors
+			.newSingleThreadScheduledExecutor(newFactory("cfn-polling"));
+
+	/** daemon threads do not keep maven from exiting */
+	private static ThreadFactory newFactory(final String prefix) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable task) {
+				final Thread thread = new Thread(task, prefix + "-"
+						+ count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	private static String key(final AWSCredentials credentials,
+			final String endpoint) {
+		return endpoint + "/" + credentials.getAWSAccessKeyId() + "/"
+				+ DigestUtils.shaHex(String.valueOf(credentials
+						.getAWSSecretKey()));
+	}
+
+	public static synchronized AmazonCloudFormationAsync client(
+			final AWSCredentials credentials, final String endpoint) {
+
+		final String key = key(credentials, endpoint);
+
+		AmazonCloudFormationAsync client = clientMap.get(key);
+
+		if (client == null) {
+
+			final ClientConfiguration config = new ClientConfiguration();
+			config.setMaxConnections(REQUEST_THREADS);
+
+			client = new AmazonCloudFormationAsyncClient(credentials, config,
+					executor);
+
+			client.setEndpoint(endpoint);
+
+			clientMap.put(key, client);
+
+		}
+
+		return client;
+
+	}
+
+	public static ScheduledExecutorService scheduler() {
+		return scheduler;
+	}
+
+	private CloudFormClientCache() {
+	}
+
+}
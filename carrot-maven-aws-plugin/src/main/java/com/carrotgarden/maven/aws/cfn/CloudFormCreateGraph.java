@@ -0,0 +1,391 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.cfn;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.amazonaws.services.cloudformation.model.Output;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackStatus;
+
+/**
+ * cloud formation:
+ * 
+ * <b><a href=
+ * "http://docs.amazonwebservices.com/AWSCloudFormation/latest/APIReference/API_CreateStack.html"
+ * >create stacks</a></b>
+ * 
+ * from a list of {@link StackDefinition} entries ({@link #stackDefinitions});
+ * 
+ * stack dependencies are derived from template references: when a template
+ * parameter of one stack matches a template output of another stack, the
+ * former depends on the latter; explicit dependencies are taken from
+ * {@link StackDefinition#getStackDependsOn()};
+ * 
+ * independent stacks are created concurrently ({@link #stackParallelism}),
+ * tracked by asynchronous status polling on shared threads,
+ * dependent stacks are created in topological order, with upstream stack
+ * outputs wired into downstream stack parameters;
+ * 
+ * stack outputs are injected into project.properties;
+ * 
+ * wait for completion or fail ({@link #stackTimeout});
+ * 
+ * @goal cloud-formation-create-graph
+ * 
+ * @phase prepare-package
+ * 
+ * @inheritByDefault true
+ * 
+ * @requiresDependencyResolution test
+ * 
+ */
+public class CloudFormCreateGraph extends CloudForm {
+
+	/**
+	 * list of stacks to create
+	 * 
+	 * @required
+	 * @parameter
+	 */
+	protected List<StackDefinition> stackDefinitions = new ArrayList<StackDefinition>();
+
+	/**
+	 * maximum number of stack create operations in flight at the same time
+	 * 
+	 * @parameter default-value="5"
+	 */
+	protected int stackParallelism;
+
+	/**
+	 * should inject stack operation output into the project.properties?
+	 * 
+	 * @parameter default-value="true"
+	 */
+	protected boolean stackIsInjectOutputProperties;
+
+	/** stack name -> template output names */
+	private Map<String, Set<String>> ensureOutputMap() throws Exception {
+
+		final Map<String, Set<String>> outputMap = new TreeMap<String, Set<String>>();
+
+		for (final StackDefinition definition : stackDefinitions) {
+			outputMap.put(definition.getStackName(),
+					loadOutputNames(definition.getStackTemplateFile()));
+		}
+
+		return outputMap;
+
+	}
+
+	/** stack name -> names of stacks it depends on */
+	private Map<String, Set<String>> ensureDependencyMap(
+			final Map<String, StackDefinition> definitionMap) throws Exception {
+
+		final Map<String, Set<String>> outputMap = ensureOutputMap();
+
+		final Map<String, Set<String>> dependencyMap = new TreeMap<String, Set<String>>();
+
+		for (final StackDefinition definition : definitionMap.values()) {
+
+			final String name = definition.getStackName();
+
+			final Set<String> upstreamSet = new TreeSet<String>(
+					definition.getStackDependsOn());
+
+			final Set<String> paramSet = loadParameterNames(definition
+					.getStackTemplateFile());
+
+			for (final String param : paramSet) {
+
+				/** explicit input wins over upstream output */
+				if (definition.getStackInputParams().containsKey(param)) {
+					continue;
+				}
+
+				final List<String> producerList = new ArrayList<String>();
+
+				for (final Map.Entry<String, Set<String>> entry : outputMap
+						.entrySet()) {
+					if (name.equals(entry.getKey())) {
+						continue;
+					}
+					if (entry.getValue().contains(param)) {
+						producerList.add(entry.getKey());
+					}
+				}
+
+				switch (producerList.size()) {
+				case 0:
+					break;
+				case 1:
+					upstreamSet.add(producerList.get(0));
+					break;
+				default:
+					throw new IllegalStateException("stack " + name
+							+ " parameter " + param
+							+ " is ambiguous; produced by " + producerList);
+				}
+
+			}
+
+			dependencyMap.put(name, upstreamSet);
+
+			getLog().info("stack graph [" + name + "] <- " + upstreamSet);
+
+		}
+
+		return dependencyMap;
+
+	}
+
+	private Map<String, StackDefinition> ensureDefinitionMap() {
+
+		final Map<String, StackDefinition> definitionMap = new TreeMap<String, StackDefinition>();
+
+		for (final StackDefinition definition : stackDefinitions) {
+
+			final String name = definition.getStackName();
+
+			if (name == null) {
+				throw new IllegalArgumentException("missing stack name");
+			}
+
+			if (definitionMap.containsKey(name)) {
+				throw new IllegalArgumentException("duplicate stack name : "
+						+ name);
+			}
+
+			definitionMap.put(name, definition);
+
+		}
+
+		return definitionMap;
+
+	}
+
+	private Map<String, String> outputProps(final Stack stack) {
+
+		final Map<String, String> outputProps = new TreeMap<String, String>();
+
+		for (final Output output : stack.getOutputs()) {
+			outputProps.put(output.getOutputKey(), output.getOutputValue());
+		}
+
+		return outputProps;
+
+	}
+
+	/**
+	 * submit single stack create with upstream outputs as default
+	 * parameters; report stack name into the queue once complete
+	 */
+	private StackFuture startStack(final StackDefinition definition,
+			final Map<String, String> upstreamProps,
+			final BlockingQueue<String> doneQueue) throws Exception {
+
+		final String name = definition.getStackName();
+
+		getLog().info("stack create init [" + name + "]");
+
+		final Map<String, String> pluginProps = new TreeMap<String, String>();
+		pluginProps.putAll(upstreamProps);
+		pluginProps.putAll(definition.getStackInputParams());
+
+		final Map<String, String> stackTemplateParams = loadTemplateParameters(
+				definition.getStackTemplateFile(), pluginProps);
+
+		final CarrotCloudForm formation = newCloudFormation(name,
+				definition.getStackTemplateFile(), stackTemplateParams);
+
+		formation.logParamList();
+
+		final StackFuture future = formation.stackCreateAsync();
+
+		future.addListener(new Runnable() {
+			@Override
+			public void run() {
+				doneQueue.add(name);
+			}
+		});
+
+		return future;
+
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute() throws MojoFailureException {
+
+		try {
+
+			getLog().info("stack graph init " + stackDefinitions);
+
+			final Map<String, StackDefinition> definitionMap = ensureDefinitionMap();
+
+			final StackGraph graph = new StackGraph(
+					ensureDependencyMap(definitionMap));
+
+			getLog().info("stack graph order : " + graph.topological());
+
+			final Map<String, Stack> stackMap = runGraph(graph, definitionMap);
+
+			final Properties outputProps = new Properties();
+
+			for (final String name : graph.topological()) {
+
+				final Map<String, String> props = outputProps(stackMap
+						.get(name));
+
+				getLog().info("stack create output [" + name + "]:");
+
+				for (final Map.Entry<String, String> entry : props.entrySet()) {
+					getLog().info("\t" + entry.getKey() + "=" + entry.getValue());
+				}
+
+				outputProps.putAll(props);
+
+			}
+
+			if (stackIsInjectOutputProperties) {
+
+				project().getProperties().putAll(outputProps);
+
+				getLog().info(
+						"stack graph output is injected in project.properties");
+
+			}
+
+			getLog().info("stack graph done " + stackDefinitions);
+
+		} catch (final Exception e) {
+
+			throw new MojoFailureException("bada-boom", e);
+
+		}
+
+	}
+
+	/**
+	 * run stacks as soon as their upstream stacks are complete; stack status
+	 * is tracked by asynchronous polling, not by a thread per stack
+	 * 
+	 * @return stack name -> created stack
+	 */
+	private Map<String, Stack> runGraph(final StackGraph graph,
+			final Map<String, StackDefinition> definitionMap) throws Exception {
+
+		final BlockingQueue<String> doneQueue = new LinkedBlockingQueue<String>();
+
+		final LinkedList<String> readyList = new LinkedList<String>(
+				graph.roots());
+
+		final Map<String, StackFuture> runningMap = new TreeMap<String, StackFuture>();
+
+		final Map<String, Stack> stackMap = new TreeMap<String, Stack>();
+
+		/** names of stacks which failed or were skipped */
+		final Set<String> failureSet = new TreeSet<String>();
+
+		final int parallelism = Math.max(1, stackParallelism);
+
+		while (true) {
+
+			while (!readyList.isEmpty() && runningMap.size() < parallelism) {
+
+				final String name = readyList.removeFirst();
+
+				final Map<String, String> upstreamProps = new TreeMap<String, String>();
+				for (final String upstream : graph.upstream(name)) {
+					upstreamProps.putAll(outputProps(stackMap.get(upstream)));
+				}
+
+				try {
+					runningMap.put(name, startStack(definitionMap.get(name),
+							upstreamProps, doneQueue));
+				} catch (final Exception e) {
+					getLog().error("stack create failure [" + name + "]", e);
+					failStack(graph, name, failureSet);
+				}
+
+			}
+
+			if (runningMap.isEmpty()) {
+				break;
+			}
+
+			final String name = doneQueue.take();
+
+			final StackFuture future = runningMap.remove(name);
+
+			Stack stack = null;
+			try {
+				stack = future.get();
+			} catch (final Exception e) {
+				getLog().error("stack create failure [" + name + "]", e);
+			}
+
+			final boolean isCreated = stack != null
+					&& StackStatus.CREATE_COMPLETE == StackStatus
+							.fromValue(stack.getStackStatus());
+
+			if (!isCreated) {
+				failStack(graph, name, failureSet);
+				continue;
+			}
+
+			stackMap.put(name, stack);
+
+			for (final String next : graph.released(name, stackMap.keySet())) {
+				if (!failureSet.contains(next)) {
+					readyList.add(next);
+				}
+			}
+
+		}
+
+		if (!failureSet.isEmpty()) {
+			throw new IllegalStateException("stack graph failed : "
+					+ failureSet);
+		}
+
+		return stackMap;
+
+	}
+
+	/** mark stack failed and skip all its downstream stacks */
+	private void failStack(final StackGraph graph, final String name,
+			final Set<String> failureSet) {
+
+		getLog().error("stack create failed [" + name + "]");
+
+		failureSet.add(name);
+
+		final Set<String> skipSet = graph.transitiveDownstream(name);
+
+		if (!skipSet.isEmpty()) {
+			getLog().error("stack create skipped : " + skipSet);
+			failureSet.addAll(skipSet);
+		}
+
+	}
+
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.cfn;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.amazonaws.services.cloudformation.model.Output;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackStatus;
+import com.carrotgarden.maven.aws.util.Util;
+
+/**
+ * cloud formation:
+ * 
+ * <b>deploy one stack template into multiple regions</b>
+ * 
+ * ({@link #stackRegionDefinitions});
+ * 
+ * in each region, the stack is created when missing, or updated otherwise;
+ * all regions are deployed concurrently, so total time is the time of the
+ * slowest region;
+ * 
+ * stack parameters are resolved from {@link #stackPropertiesInputFile} +
+ * {@link #stackInputParams}, and then overridden by region parameters
+ * {@link RegionDefinition#getStackInputParams()};
+ * 
+ * stack output of each region is injected into project.properties as
+ * "region.OutputKey", see {@link #stackRegionOutputFormat};
+ * 
+ * wait for completion or fail ({@link #stackTimeout});
+ * 
+ * @goal cloud-formation-deploy-regions
+ * 
+ * @phase prepare-package
+ * 
+ * @inheritByDefault true
+ * 
+ * @requiresDependencyResolution test
+ * 
+ */
+public class CloudFormDeployRegions extends CloudForm {
+
+	/**
+	 * AWS CloudFormation template file
+	 * 
+	 * @required
+	 * @parameter default-value="./target/formation/formation.template"
+	 */
+	protected File stackTemplateFile;
+
+	/**
+	 * stack template input parameters shared by all regions; optional;
+	 * overrides settings from #stackPropertiesInputFile
+	 * 
+	 * @parameter
+	 */
+	protected Map<String, String> stackInputParams = new HashMap<String, String>();
+
+	/**
+	 * input properties file shared by all regions; will be overridden by
+	 * #stackInputParams if any
+	 * 
+	 * @parameter default-value="./target/formation/formation-input.properties"
+	 */
+	protected File stackPropertiesInputFile;
+
+	/**
+	 * list of target regions, with optional region parameters
+	 * 
+	 * @required
+	 * @parameter
+	 */
+	protected List<RegionDefinition> stackRegionDefinitions = new ArrayList<RegionDefinition>();
+
+	/**
+	 * format of project.property name for region stack output; arguments
+	 * are region name and stack output key
+	 * 
+	 * @parameter default-value="%s.%s"
+	 */
+	protected String stackRegionOutputFormat;
+
+	/**
+	 * should inject stack operation output into the project.properties?
+	 * 
+	 * @parameter default-value="true"
+	 */
+	protected boolean stackIsInjectOutputProperties;
+
+	private String regionEndpoint(final RegionDefinition definition) {
+		if (definition.getEndpoint() == null) {
+			return stackEndpoint(definition.getRegion());
+		} else {
+			return definition.getEndpoint();
+		}
+	}
+
+	/** create when missing, update otherwise */
+	private StackFuture startRegion(final RegionDefinition definition,
+			final Map<String, String> sharedProps) throws Exception {
+
+		final String region = definition.getRegion();
+
+		final Map<String, String> pluginProps = new TreeMap<String, String>();
+		pluginProps.putAll(sharedProps);
+		pluginProps.putAll(definition.getStackInputParams());
+
+		final Map<String, String> stackTemplateParams = loadTemplateParameters(
+				stackTemplateFile, pluginProps);
+
+		final CarrotCloudForm formation = newCloudFormation(stackName(),
+				regionEndpoint(definition), stackTemplateFile,
+				stackTemplateParams);
+
+		formation.logParamList();
+
+		if (formation.findStack() == null) {
+			getLog().info("stack region create [" + region + "]");
+			return formation.stackCreateAsync();
+		} else {
+			getLog().info("stack region update [" + region + "]");
+			return formation.stackUpdateAsync();
+		}
+
+	}
+
+	private boolean isDeployed(final Stack stack) {
+
+		if (stack == null) {
+			return false;
+		}
+
+		if (CarrotCloudForm.isUpdateSkipped(stack)) {
+			return true;
+		}
+
+		final StackStatus status = StackStatus.fromValue(stack
+				.getStackStatus());
+
+		switch (status) {
+		case CREATE_COMPLETE:
+		case UPDATE_COMPLETE:
+			return true;
+		default:
+			return false;
+		}
+
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute() throws MojoFailureException {
+
+		try {
+
+			getLog().info(
+					"stack regions init [" + stackName() + "] "
+							+ stackRegionDefinitions);
+
+			final Properties stackInputProps = Util.propsLoad(getLog(),
+					stackPropertiesInputFile);
+
+			final Map<String, String> sharedProps = mergePluginProps(
+					stackInputProps, stackInputParams);
+
+			final Map<String, StackFuture> futureMap = new TreeMap<String, StackFuture>();
+
+			final Set<String> failureSet = new TreeSet<String>();
+
+			for (final RegionDefinition definition : stackRegionDefinitions) {
+
+				final String region = definition.getRegion();
+
+				if (futureMap.containsKey(region)) {
+					throw new IllegalArgumentException("duplicate region : "
+							+ region);
+				}
+
+				try {
+					futureMap.put(region, startRegion(definition, sharedProps));
+				} catch (final Exception e) {
+					getLog().error("stack region failure [" + region + "]", e);
+					failureSet.add(region);
+				}
+
+			}
+
+			final Properties outputProps = new Properties();
+
+			for (final Map.Entry<String, StackFuture> entry : futureMap
+					.entrySet()) {
+
+				final String region = entry.getKey();
+
+				Stack stack = null;
+				try {
+					stack = entry.getValue().get();
+				} catch (final Exception e) {
+					getLog().error("stack region failure [" + region + "]", e);
+				}
+
+				if (!isDeployed(stack)) {
+					getLog().error(
+							"stack region failed [" + region + "] : " + stack);
+					failureSet.add(region);
+					continue;
+				}
+
+				getLog().info("stack region output [" + region + "]:");
+
+				for (final Output output : stack.getOutputs()) {
+
+					final String key = String.format(stackRegionOutputFormat,
+							region, output.getOutputKey());
+					final String value = output.getOutputValue();
+
+					outputProps.put(key, value);
+
+					getLog().info("\t" + key + "=" + value);
+
+				}
+
+			}
+
+			if (stackIsInjectOutputProperties) {
+
+				project().getProperties().putAll(outputProps);
+
+				getLog().info(
+						"stack regions output is injected in project.properties");
+
+			}
+
+			if (!failureSet.isEmpty()) {
+				throw new IllegalStateException("stack regions failed : "
+						+ failureSet);
+			}
+
+			getLog().info("stack regions done [" + stackName() + "]");
+
+		} catch (final Exception e) {
+
+			throw new MojoFailureException("bada-boom", e);
+
+		}
+
+	}
+
+}
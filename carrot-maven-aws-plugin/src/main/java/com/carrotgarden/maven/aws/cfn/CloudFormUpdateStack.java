@@ -7,8 +7,18 @@
  */
 package com.carrotgarden.maven.aws.cfn;
 
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
 import org.apache.maven.plugin.MojoFailureException;
 
+import com.amazonaws.services.cloudformation.model.Output;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackStatus;
+import com.carrotgarden.maven.aws.util.Util;
+
 /**
  * cloud formation:
  * 
@@ -18,7 +28,12 @@ import org.apache.maven.plugin.MojoFailureException;
  * 
  * based on:
  * 
- * <b>stack name</b>
+ * <b>stack name</b>, stack template ({@link #stackTemplateFile}), stack
+ * parameters ({@link #stackPropertiesInputFile} + {@link #stackInputParams});
+ * 
+ * update is skipped without submitting when template and parameters
+ * fingerprint matches the deployed stack; the outcome is published in
+ * {@link #stackUpdateResultProperty}
  * 
  * ; wait for completion or fail ({@link #stackTimeout})
  * 
@@ -33,6 +48,66 @@ import org.apache.maven.plugin.MojoFailureException;
  */
 public class CloudFormUpdateStack extends CloudForm {
 
+	/** {@link #stackUpdateResultProperty} value: update was applied */
+	public static final String RESULT_UPDATED = "UPDATED";
+
+	/** {@link #stackUpdateResultProperty} value: update was a no-op */
+	public static final String RESULT_SKIPPED = "SKIPPED";
+
+	/**
+	 * AWS CloudFormation template file
+	 * 
+	 * @required
+	 * @parameter default-value="./target/formation/formation.template"
+	 */
+	protected File stackTemplateFile;
+
+	/**
+	 * stack template input parameters; optional; overrides settings from
+	 * #stackPropertiesInputFile
+	 * 
+	 * @parameter
+	 */
+	protected Map<String, String> stackInputParams = new HashMap<String, String>();
+
+	/**
+	 * input properties file; will be overridden by #stackInputParams if any
+	 * 
+	 * @parameter default-value="./target/formation/formation-input.properties"
+	 */
+	protected File stackPropertiesInputFile;
+
+	/**
+	 * output properties file
+	 * 
+	 * @parameter default-value="./target/formation/formation-output.properties"
+	 */
+	protected File stackPropertiesOutputFile;
+
+	/**
+	 * should inject stack operation output into the project.properties?
+	 * 
+	 * @parameter default-value="true"
+	 */
+	protected boolean stackIsInjectOutputProperties;
+
+	/**
+	 * should persist stack operation output into
+	 * {@link #stackPropertiesOutputFile}
+	 * 
+	 * @parameter default-value="true"
+	 */
+	protected boolean stackIsPersistOutputProperties;
+
+	/**
+	 * name of project.property which will contain update outcome after
+	 * execution of this maven goal: "UPDATED" or "SKIPPED"
+	 * 
+	 * @required
+	 * @parameter default-value="amazonStackUpdateResult"
+	 */
+	private String stackUpdateResultProperty;
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -43,7 +118,81 @@ public class CloudFormUpdateStack extends CloudForm {
 
 			getLog().info("stack update init [" + stackName() + "]");
 
-			getLog().error("stack update TODO");
+			final Properties stackInputProps = Util.propsLoad(getLog(),
+					stackPropertiesInputFile);
+
+			final Map<String, String> pluginProps = mergePluginProps(
+					stackInputProps, stackInputParams);
+
+			final Map<String, String> stackTemplateParams = loadTemplateParameters(
+					stackTemplateFile, pluginProps);
+
+			final CarrotCloudForm formation = newCloudFormation(
+					stackTemplateFile, stackTemplateParams);
+
+			formation.logParamList();
+
+			final Stack stack = formation.stackUpdate();
+
+			final String result;
+
+			if (CarrotCloudForm.isUpdateSkipped(stack)) {
+				result = RESULT_SKIPPED;
+			} else {
+				final StackStatus status = StackStatus.fromValue(stack
+						.getStackStatus());
+				switch (status) {
+				case UPDATE_COMPLETE:
+					result = RESULT_UPDATED;
+					break;
+				default:
+					throw new IllegalStateException("stack update failed");
+				}
+			}
+
+			project().getProperties().put(stackUpdateResultProperty, result);
+
+			getLog().info("stack update result : " + result);
+
+			//
+
+			getLog().info("stack update stack=\n" + stack);
+
+			getLog().info("stack update output:");
+
+			final Properties outputProps = new Properties();
+
+			for (final Output output : stack.getOutputs()) {
+
+				final String key = output.getOutputKey();
+				final String value = output.getOutputValue();
+
+				outputProps.put(key, value);
+
+				getLog().info("\t" + key + "=" + value);
+
+			}
+
+			if (stackIsInjectOutputProperties) {
+
+				project().getProperties().putAll(outputProps);
+
+				getLog().info(
+						"stack update output is injected in project.properties");
+
+			}
+
+			if (stackIsPersistOutputProperties) {
+
+				Util.propsSave(getLog(), outputProps, stackPropertiesOutputFile);
+
+				getLog().info(
+						"stack update output is persisted to : "
+								+ stackPropertiesOutputFile);
+
+			}
+
+			//
 
 			getLog().info("stack update done [" + stackName() + "]");
 
@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.cfn;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * single region entry of a multi region goal; configured in pom.xml as
+ * follows:
+ * 
+ * <pre>
+ * &lt;regionDefinition&gt;
+ *   &lt;region&gt;eu-west-1&lt;/region&gt;
+ *   &lt;stackInputParams&gt;
+ *     &lt;key&gt;value&lt;/key&gt;
+ *   &lt;/stackInputParams&gt;
+ * &lt;/regionDefinition&gt;
+ * </pre>
+ */
+public class RegionDefinition {
+
+	/** amazon region name, such as us-east-1 */
+	private String region;
+
+	/** optional api end point url; when omitted, derived from region */
+	private String endpoint;
+
+	/** region specific stack input parameters; override shared parameters */
+	private Map<String, String> stackInputParams = new HashMap<String, String>();
+
+	public String getRegion() {
+		return region;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public Map<String, String> getStackInputParams() {
+		if (stackInputParams == null) {
+			stackInputParams = new HashMap<String, String>();
+		}
+		return stackInputParams;
+	}
+
+	@Override
+	public String toString() {
+		return region;
+	}
+
+}
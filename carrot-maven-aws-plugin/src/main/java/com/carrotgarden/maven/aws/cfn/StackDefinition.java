@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.cfn;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * single stack entry of a multi stack goal; configured in pom.xml as follows:
+ * 
+ * <pre>
+ * &lt;stackDefinition&gt;
+ *   &lt;stackName&gt;network&lt;/stackName&gt;
+ *   &lt;stackTemplateFile&gt;./network.template&lt;/stackTemplateFile&gt;
+ *   &lt;stackInputParams&gt;
+ *     &lt;key&gt;value&lt;/key&gt;
+ *   &lt;/stackInputParams&gt;
+ *   &lt;stackDependsOn&gt;
+ *     &lt;stackName&gt;security&lt;/stackName&gt;
+ *   &lt;/stackDependsOn&gt;
+ * &lt;/stackDefinition&gt;
+ * </pre>
+ */
+public class StackDefinition {
+
+	/** AWS CloudFormation stack name; must be unique */
+	private String stackName;
+
+	/** AWS CloudFormation template file */
+	private File stackTemplateFile;
+
+	/** stack input parameters; override upstream stack outputs */
+	private Map<String, String> stackInputParams = new HashMap<String, String>();
+
+	/** explicit stack dependencies, in addition to output references */
+	private List<String> stackDependsOn = new ArrayList<String>();
+
+	public String getStackName() {
+		return stackName;
+	}
+
+	public File getStackTemplateFile() {
+		return stackTemplateFile;
+	}
+
+	public Map<String, String> getStackInputParams() {
+		if (stackInputParams == null) {
+			stackInputParams = new HashMap<String, String>();
+		}
+		return stackInputParams;
+	}
+
+	public List<String> getStackDependsOn() {
+		if (stackDependsOn == null) {
+			stackDependsOn = new ArrayList<String>();
+		}
+		return stackDependsOn;
+	}
+
+	@Override
+	public String toString() {
+		return stackName;
+	}
+
+}
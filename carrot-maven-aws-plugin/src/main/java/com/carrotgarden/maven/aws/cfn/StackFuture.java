@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.cfn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.amazonaws.services.cloudformation.model.Stack;
+
+/**
+ * result of asynchronous stack operation; completed by stack status polling
+ */
+public class StackFuture implements Future<Stack> {
+
+	private final CountDownLatch latch = new CountDownLatch(1);
+
+	private final List<Runnable> listenerList = new ArrayList<Runnable>();
+
+	private volatile Stack stack;
+
+	private volatile Exception error;
+
+	/** run listener once operation is complete; immediately if already done */
+	public void addListener(final Runnable listener) {
+		synchronized (listenerList) {
+			if (!isDone()) {
+				listenerList.add(listener);
+				return;
+			}
+		}
+		listener.run();
+	}
+
+	private void finish(final Stack stack, final Exception error) {
+		final List<Runnable> list;
+		synchronized (listenerList) {
+			if (isDone()) {
+				return;
+			}
+			this.stack = stack;
+			this.error = error;
+			latch.countDown();
+			list = new ArrayList<Runnable>(listenerList);
+			listenerList.clear();
+		}
+		for (final Runnable listener : list) {
+			listener.run();
+		}
+	}
+
+	public void succeed(final Stack stack) {
+		finish(stack, null);
+	}
+
+	public void fail(final Exception error) {
+		finish(null, error);
+	}
+
+	/** polling can not be cancelled; stack operation is already submitted */
+	@Override
+	public boolean cancel(final boolean mayInterruptIfRunning) {
+		return false;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return false;
+	}
+
+	@Override
+	public boolean isDone() {
+		return latch.getCount() == 0;
+	}
+
+	private Stack result() throws ExecutionException {
+		if (error != null) {
+			throw new ExecutionException(error);
+		}
+		return stack;
+	}
+
+	@Override
+	public Stack get() throws InterruptedException, ExecutionException {
+		latch.await();
+		return result();
+	}
+
+	@Override
+	public Stack get(final long timeout, final TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		if (!latch.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		return result();
+	}
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.cfn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * stack dependency graph; tracks which stacks are ready to run, given the
+ * stacks which are already complete
+ */
+public class StackGraph {
+
+	/** stack name -> names of stacks it depends on */
+	private final Map<String, Set<String>> upstreamMap = new TreeMap<String, Set<String>>();
+
+	/** stack name -> names of stacks which depend on it */
+	private final Map<String, Set<String>> downstreamMap = new TreeMap<String, Set<String>>();
+
+	public StackGraph(final Map<String, Set<String>> dependencyMap) {
+
+		for (final String name : dependencyMap.keySet()) {
+			upstreamMap.put(name, new TreeSet<String>());
+			downstreamMap.put(name, new TreeSet<String>());
+		}
+
+		for (final Map.Entry<String, Set<String>> entry : dependencyMap
+				.entrySet()) {
+
+			final String name = entry.getKey();
+
+			for (final String upstream : entry.getValue()) {
+
+				if (!upstreamMap.containsKey(upstream)) {
+					throw new IllegalArgumentException("stack " + name
+							+ " depends on unknown stack " + upstream);
+				}
+
+				if (name.equals(upstream)) {
+					throw new IllegalArgumentException("stack " + name
+							+ " depends on itself");
+				}
+
+				upstreamMap.get(name).add(upstream);
+				downstreamMap.get(upstream).add(name);
+
+			}
+
+		}
+
+		topological(); // fail fast on cycles
+
+	}
+
+	/** names of all stacks */
+	public Set<String> names() {
+		return Collections.unmodifiableSet(upstreamMap.keySet());
+	}
+
+	/** names of stacks the given stack depends on */
+	public Set<String> upstream(final String name) {
+		return Collections.unmodifiableSet(upstreamMap.get(name));
+	}
+
+	/** names of stacks which depend on the given stack */
+	public Set<String> downstream(final String name) {
+		return Collections.unmodifiableSet(downstreamMap.get(name));
+	}
+
+	/** stacks without dependencies */
+	public List<String> roots() {
+		final List<String> list = new ArrayList<String>();
+		for (final String name : upstreamMap.keySet()) {
+			if (upstreamMap.get(name).isEmpty()) {
+				list.add(name);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * @return stacks which depend on the given stack and have all of their
+	 *         dependencies in the completed set
+	 */
+	public List<String> released(final String name, final Set<String> doneSet) {
+		final List<String> list = new ArrayList<String>();
+		for (final String next : downstreamMap.get(name)) {
+			if (doneSet.containsAll(upstreamMap.get(next))) {
+				list.add(next);
+			}
+		}
+		return list;
+	}
+
+	/** all stacks which transitively depend on the given stack */
+	public Set<String> transitiveDownstream(final String name) {
+		final Set<String> result = new TreeSet<String>();
+		final LinkedList<String> queue = new LinkedList<String>();
+		queue.add(name);
+		while (!queue.isEmpty()) {
+			for (final String next : downstreamMap.get(queue.removeFirst())) {
+				if (result.add(next)) {
+					queue.add(next);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return stack names in dependency order
+	 * 
+	 * @throws IllegalStateException
+	 *             on dependency cycle
+	 */
+	public List<String> topological() {
+
+		final Map<String, Integer> degreeMap = new TreeMap<String, Integer>();
+
+		for (final String name : upstreamMap.keySet()) {
+			degreeMap.put(name, upstreamMap.get(name).size());
+		}
+
+		final LinkedList<String> queue = new LinkedList<String>(roots());
+
+		final List<String> result = new ArrayList<String>();
+
+		while (!queue.isEmpty()) {
+
+			final String name = queue.removeFirst();
+
+			result.add(name);
+
+			for (final String next : downstreamMap.get(name)) {
+				final int degree = degreeMap.get(next) - 1;
+				degreeMap.put(next, degree);
+				if (degree == 0) {
+					queue.add(next);
+				}
+			}
+
+		}
+
+		if (result.size() != upstreamMap.size()) {
+			final Set<String> cycleSet = new TreeSet<String>(
+					upstreamMap.keySet());
+			cycleSet.removeAll(result);
+			throw new IllegalStateException("stack dependency cycle : "
+					+ cycleSet);
+		}
+
+		return result;
+
+	}
+
+}
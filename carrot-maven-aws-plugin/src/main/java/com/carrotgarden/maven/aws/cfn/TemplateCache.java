@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.cfn;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.io.FileUtils;
+
+import com.carrotgarden.maven.aws.util.Util;
+
+/**
+ * cloud formation templates shared by all plug-in executions in a build;
+ * each template file is read and parsed once, and re-read only when its size
+ * or modification time changes
+ */
+public class TemplateCache {
+
+	/** parsed template */
+	public static class Entry {
+
+		private final long size;
+		private final long modified;
+
+		/** raw template text */
+		public final String text;
+
+		/** top level section name -> section entry names */
+		private final Map<String, Set<String>> sectionMap;
+
+		Entry(final long size, final long modified, final String text,
+				final Map<String, Set<String>> sectionMap) {
+			this.size = size;
+			this.modified = modified;
+			this.text = text;
+			this.sectionMap = sectionMap;
+		}
+
+		/** @return entry names of a top level section; empty if missing */
+		public Set<String> sectionNames(final String section) {
+			final Set<String> nameSet = sectionMap.get(section);
+			if (nameSet == null) {
+				return Collections.emptySet();
+			}
+			return nameSet;
+		}
+
+		boolean isCurrent(final File file) {
+			return size == file.length() && modified == file.lastModified();
+		}
+
+	}
+
+	private static final ConcurrentMap<String, Entry> entryMap = new ConcurrentHashMap<String, Entry>();
+
+	public static Entry load(final File file) throws Exception {
+
+		final String key = file.getCanonicalPath();
+
+		final Entry cached = entryMap.get(key);
+
+		if (cached != null && cached.isCurrent(file)) {
+			return cached;
+		}
+
+		final long size = file.length();
+		final long modified = file.lastModified();
+
+		final String text = FileUtils.readFileToString(file);
+
+		final Entry entry = new Entry(size, modified, text, parse(text));
+
+		entryMap.put(key, entry);
+
+		return entry;
+
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static Map<String, Set<String>> parse(final String text)
+			throws Exception {
+
+		final Map<String, Set<String>> sectionMap = new TreeMap<String, Set<String>>();
+
+		final Map templateMap = Util.jsonLoad(text, Map.class);
+
+		for (final Object key : templateMap.keySet()) {
+
+			final Object section = templateMap.get(key);
+
+			if (!(section instanceof Map)) {
+				continue;
+			}
+
+			final Set<String> nameSet = new TreeSet<String>();
+
+			for (final Object name : ((Map) section).keySet()) {
+				nameSet.add(name.toString());
+			}
+
+			sectionMap.put(key.toString(),
+					Collections.unmodifiableSet(nameSet));
+
+		}
+
+		return sectionMap;
+
+	}
+
+	private TemplateCache() {
+	}
+
+}
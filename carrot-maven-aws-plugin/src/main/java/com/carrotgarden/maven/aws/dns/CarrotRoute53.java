@@ -8,11 +8,20 @@
 package com.carrotgarden.maven.aws.dns;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 
 import com.amazonaws.auth.AWSCredentials;
@@ -24,7 +33,11 @@ import com.amazonaws.services.route53.model.ChangeBatch;
 import com.amazonaws.services.route53.model.ChangeInfo;
 import com.amazonaws.services.route53.model.ChangeResourceRecordSetsRequest;
 import com.amazonaws.services.route53.model.ChangeResourceRecordSetsResult;
+import com.amazonaws.services.route53.model.ChangeStatus;
+import com.amazonaws.services.route53.model.GetChangeRequest;
+import com.amazonaws.services.route53.model.GetChangeResult;
 import com.amazonaws.services.route53.model.HostedZone;
+import com.amazonaws.services.route53.model.ListHostedZonesRequest;
 import com.amazonaws.services.route53.model.ListHostedZonesResult;
 import com.amazonaws.services.route53.model.ListResourceRecordSetsRequest;
 import com.amazonaws.services.route53.model.ListResourceRecordSetsResult;
@@ -68,20 +81,62 @@ public class CarrotRoute53 {
 			return nameList;
 		}
 
+		for (final ResourceRecordSet record : listRecords(zone.getId(), null,
+				null)) {
+			nameList.add(record.getName());
+		}
+
+		return nameList;
+
+	}
+
+	/** records per list page */
+	private static final int RECORD_PAGE = 100;
+
+	/**
+	 * list record sets of a zone starting from a given name and type,
+	 * following pagination
+	 * 
+	 * @param name
+	 *            only records with this name, or all records when null
+	 * @param type
+	 *            only records of this type, or all types when null; ignored
+	 *            when name is null
+	 */
+	public List<ResourceRecordSet> listRecords(final String zoneId,
+			final String name, final String type) {
+
+		final List<ResourceRecordSet> recordList = new ArrayList<ResourceRecordSet>();
+
 		final ListResourceRecordSetsRequest request = new ListResourceRecordSetsRequest();
 
-		request.setHostedZoneId(zone.getId());
+		request.setHostedZoneId(zoneId);
+		request.setMaxItems(String.valueOf(RECORD_PAGE));
+
+		if (name != null) {
+			request.setStartRecordName(name);
+			request.setStartRecordType(type);
+		}
 
 		while (true) {
 
 			final ListResourceRecordSetsResult result = amazonClient
 					.listResourceRecordSets(request);
 
-			final List<ResourceRecordSet> recordList = result
-					.getResourceRecordSets();
+			for (final ResourceRecordSet record : result
+					.getResourceRecordSets()) {
+
+				/** records are sorted by name, then type */
+				if (name != null && !isSameName(name, record.getName())) {
+					return recordList;
+				}
+				if (name != null && type != null
+						&& !type.equals(record.getType())) {
+					return recordList;
+				}
+
+				recordList.add(record);
 
-			for (final ResourceRecordSet record : recordList) {
-				nameList.add(record.getName());
 			}
 
 			if (!result.isTruncated()) {
@@ -89,53 +144,146 @@ public class CarrotRoute53 {
 			}
 
 			request.setStartRecordName(result.getNextRecordName());
+			request.setStartRecordType(result.getNextRecordType());
+			request.setStartRecordIdentifier(result.getNextRecordIdentifier());
 
 		}
 
-		return nameList;
+		return recordList;
 
 	}
 
-	public HostedZone findZone(final String source) {
+	/** route53 returns lower case names with escaped wild card */
+	static boolean isSameName(final String one, final String two) {
+		return normal(one).equals(normal(two));
+	}
 
-		final ListHostedZonesResult zoneResult = amazonClient.listHostedZones();
+	private static String normal(final String name) {
+		String text = name.toLowerCase().replace("\\052", "*");
+		if (!text.endsWith(".")) {
+			text = text + ".";
+		}
+		return text;
+	}
+
+	/** zone index per amazon account, shared by all plug-in executions */
+	private static final ConcurrentMap<String, ZoneIndex> indexMap = new ConcurrentHashMap<String, ZoneIndex>();
 
-		final List<HostedZone> zoneList = zoneResult.getHostedZones();
+	private String indexKey() {
+		return credentials.getAWSAccessKeyId() + "/"
+				+ DigestUtils.shaHex(String.valueOf(credentials.getAWSSecretKey()));
+	}
+
+	/** read all hosted zones, following pagination */
+	private List<HostedZone> loadZoneList() {
 
-		for (final HostedZone zone : zoneList) {
+		final List<HostedZone> zoneList = new ArrayList<HostedZone>();
 
-			final String name = zone.getName();
+		final ListHostedZonesRequest request = new ListHostedZonesRequest();
 
-			if (source.endsWith(name)) {
-				return zone;
+		while (true) {
+
+			final ListHostedZonesResult result = amazonClient
+					.listHostedZones(request);
+
+			zoneList.addAll(result.getHostedZones());
+
+			if (!result.isTruncated()) {
+				break;
 			}
 
+			request.setMarker(result.getNextMarker());
+
 		}
 
-		return null;
+		logger.info("zone index : loaded {} zones", zoneList.size());
+
+		return zoneList;
+
+	}
+
+	/** cached zone index; loaded once per account, reloaded on miss */
+	public ZoneIndex zoneIndex() {
+
+		final String key = indexKey();
+
+		ZoneIndex index = indexMap.get(key);
+
+		if (index == null) {
+			index = new ZoneIndex(loadZoneList());
+			final ZoneIndex past = indexMap.putIfAbsent(key, index);
+			if (past != null) {
+				index = past;
+			}
+		}
+
+		return index;
+
+	}
+
+	/**
+	 * @return most specific zone which contains the source, or null; cached
+	 *         index is reloaded once on miss, to see zones created since it
+	 *         was loaded
+	 */
+	public HostedZone findZone(final String source) {
+
+		final HostedZone zone = zoneIndex().find(source);
+
+		if (zone != null) {
+			return zone;
+		}
+
+		logger.info("zone index : miss for {}, reloading", source);
+
+		final ZoneIndex index = new ZoneIndex(loadZoneList());
+
+		indexMap.put(indexKey(), index);
+
+		return index.find(source);
 
 	}
 
+	/**
+	 * @return first record set with a given name, of any type, or null
+	 */
 	public ResourceRecordSet findRecord(final String zoneId, final String source) {
+		return findRecord(zoneId, source, null);
+	}
+
+	/**
+	 * fetch single record set directly, regardless of zone size
+	 * 
+	 * @param type
+	 *            record type, or null for any type
+	 * 
+	 * @return record set or null
+	 */
+	public ResourceRecordSet findRecord(final String zoneId,
+			final String source, final String type) {
 
 		final ListResourceRecordSetsRequest request = new ListResourceRecordSetsRequest();
 
 		request.setHostedZoneId(zoneId);
+		request.setStartRecordName(source);
+		request.setStartRecordType(type);
+		request.setMaxItems("1");
 
 		final ListResourceRecordSetsResult result = amazonClient
 				.listResourceRecordSets(request);
 
-		final List<ResourceRecordSet> recordList = result
-				.getResourceRecordSets();
-
-		for (final ResourceRecordSet record : recordList) {
+		for (final ResourceRecordSet record : result.getResourceRecordSets()) {
 
-			final String name = record.getName();
+			if (!isSameName(source, record.getName())) {
+				continue;
+			}
 
-			if (name.equals(source)) {
-				return record;
+			if (type != null && !type.equals(record.getType())) {
+				continue;
 			}
 
+			return record;
+
 		}
 
 		return null;
@@ -168,48 +316,317 @@ public class CarrotRoute53 {
 		return name;
 	}
 
-	public void ensureCNAME(final String source, final String target)
+	/**
+	 * @return submitted change batches; empty if record is in place
+	 */
+	public List<ChangeInfo> ensureCNAME(final String source,
+			final String target) throws Exception {
+
+		final Map<String, String> recordMap = new TreeMap<String, String>();
+		recordMap.put(source, target);
+
+		return ensureCNAME(recordMap);
+
+	}
+
+	/** max changes per change batch */
+	static final int CHANGE_BATCH = 1000;
+
+	/**
+	 * ensure many CNAME records with few change batches: zones are resolved
+	 * from the cached index, records which already point at their target are
+	 * skipped, changes are grouped per zone into batches
+	 * 
+	 * @param recordMap
+	 *            canonical source -> canonical target
+	 * 
+	 * @return submitted change batches
+	 */
+	public List<ChangeInfo> ensureCNAME(final Map<String, String> recordMap)
 			throws Exception {
 
-		final HostedZone zone = findZone(source);
+		/** zone id -> per record change groups */
+		final Map<String, List<List<Change>>> zoneMap = new TreeMap<String, List<List<Change>>>();
 
-		Util.assertNotNull(zone, "missing zone for " + source);
+		for (final Map.Entry<String, String> entry : recordMap.entrySet()) {
 
-		final String zoneId = zone.getId();
+			final String source = entry.getKey();
+			final String target = entry.getValue();
 
-		final boolean isPresent;
-		final ResourceRecordSet recordOld;
-		{
-			final ResourceRecordSet recordFound = findRecord(zoneId, source);
-			if (recordFound == null) {
-				isPresent = false;
-				recordOld = makeRecordCNAME(source, target);
-			} else {
-				isPresent = true;
-				recordOld = recordFound;
+			final HostedZone zone = findZone(source);
+
+			Util.assertNotNull(zone, "missing zone for " + source);
+
+			final List<Change> changeGroup = changeGroupCNAME(zone.getId(),
+					source, target);
+
+			if (changeGroup.isEmpty()) {
+				logger.info("cname unchanged : {} -> {}", source, target);
+				continue;
+			}
+
+			List<List<Change>> groupList = zoneMap.get(zone.getId());
+			if (groupList == null) {
+				groupList = new ArrayList<List<Change>>();
+				zoneMap.put(zone.getId(), groupList);
 			}
+			groupList.add(changeGroup);
+
 		}
 
+		final List<ChangeInfo> changeInfoList = new ArrayList<ChangeInfo>();
+
+		for (final Map.Entry<String, List<List<Change>>> entry : zoneMap
+				.entrySet()) {
+			changeInfoList.addAll(submitGroups(entry.getKey(),
+					entry.getValue()));
+		}
+
+		return changeInfoList;
+
+	}
+
+	/**
+	 * @return changes which make source point at target; DELETE and CREATE
+	 *         pair for existing record, CREATE for new record, empty if
+	 *         already in place
+	 */
+	private List<Change> changeGroupCNAME(final String zoneId,
+			final String source, final String target) {
+
+		final List<Change> changeList = new ArrayList<Change>();
+
+		final ResourceRecordSet recordOld = findRecord(zoneId, source);
+
 		final ResourceRecordSet recordNew = makeRecordCNAME(source, target);
 
+		if (recordOld == null) {
+			changeList.add(new Change(ChangeAction.CREATE, recordNew));
+			return changeList;
+		}
+
 		recordNew.setTTL(recordOld.getTTL());
 
-		//
+		if (isSameRecord(recordOld, recordNew)) {
+			return changeList;
+		}
 
-		final Collection<Change> changeList = new LinkedList<Change>();
-		if (isPresent) {
-			changeList.add(new Change(ChangeAction.DELETE, recordOld));
-			changeList.add(new Change(ChangeAction.CREATE, recordNew));
-		} else {
-			changeList.add(new Change(ChangeAction.CREATE, recordNew));
+		changeList.add(new Change(ChangeAction.DELETE, recordOld));
+		changeList.add(new Change(ChangeAction.CREATE, recordNew));
+
+		return changeList;
+
+	}
+
+	/** same name, type, ttl and values */
+	static boolean isSameRecord(final ResourceRecordSet one,
+			final ResourceRecordSet two) {
+
+		if (!isSameName(one.getName(), two.getName())) {
+			return false;
+		}
+		if (!one.getType().equals(two.getType())) {
+			return false;
+		}
+		if (one.getTTL() == null ? two.getTTL() != null : !one.getTTL()
+				.equals(two.getTTL())) {
+			return false;
 		}
 
+		return valueSet(one).equals(valueSet(two));
+
+	}
+
+	/**
+	 * record types whose values are host names, or end with a host name and
+	 * are otherwise numeric; compared case insensitive
+	 */
+	private static final Set<String> NAME_VALUED_TYPES = new HashSet<String>(
+			Arrays.asList("CNAME", "NS", "PTR", "MX", "SRV"));
+
+	/** values of text records, such as TXT or SPF, keep their case */
+	private static Set<String> valueSet(final ResourceRecordSet record) {
+		final boolean isName = NAME_VALUED_TYPES.contains(record.getType());
+		final Set<String> valueSet = new TreeSet<String>();
+		for (final ResourceRecord resource : record.getResourceRecords()) {
+			final String value = resource.getValue();
+			valueSet.add(isName ? value.toLowerCase() : value);
+		}
+		return valueSet;
+	}
+
+	/** record identity within a zone */
+	private static String recordKey(final ResourceRecordSet record) {
+		final String identifier = record.getSetIdentifier();
+		return normal(record.getName()) + "/" + record.getType()
+				+ (identifier == null ? "" : "/" + identifier);
+	}
+
+	/** zone records which reconciliation must never remove */
+	private static boolean isProtected(final ResourceRecordSet record,
+			final String zoneName) {
+		if ("SOA".equals(record.getType())) {
+			return true;
+		}
+		if ("NS".equals(record.getType())
+				&& isSameName(zoneName, record.getName())) {
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * compute minimal change groups which turn current zone state into
+	 * desired state: CREATE for new records, DELETE and CREATE pair for
+	 * changed records, optional DELETE for records which are not desired;
+	 * deletes come first, to clear conflicting names
+	 */
+	static List<List<Change>> diffZone(final String zoneName,
+			final List<ResourceRecordSet> currentList,
+			final List<ResourceRecordSet> desiredList,
+			final boolean isDeleteUnmanaged) {
+
+		final Map<String, ResourceRecordSet> currentMap = new TreeMap<String, ResourceRecordSet>();
+		for (final ResourceRecordSet record : currentList) {
+			currentMap.put(recordKey(record), record);
+		}
+
+		final Map<String, ResourceRecordSet> desiredMap = new TreeMap<String, ResourceRecordSet>();
+		for (final ResourceRecordSet record : desiredList) {
+			final String key = recordKey(record);
+			if (desiredMap.containsKey(key)) {
+				throw new IllegalArgumentException("duplicate record : " + key);
+			}
+			desiredMap.put(key, record);
+		}
+
+		final List<List<Change>> groupList = new ArrayList<List<Change>>();
+
+		if (isDeleteUnmanaged) {
+			for (final Map.Entry<String, ResourceRecordSet> entry : currentMap
+					.entrySet()) {
+				final ResourceRecordSet record = entry.getValue();
+				if (desiredMap.containsKey(entry.getKey())
+						|| isProtected(record, zoneName)) {
+					continue;
+				}
+				final List<Change> group = new ArrayList<Change>();
+				group.add(new Change(ChangeAction.DELETE, record));
+				groupList.add(group);
+			}
+		}
+
+		for (final Map.Entry<String, ResourceRecordSet> entry : desiredMap
+				.entrySet()) {
+
+			final ResourceRecordSet recordNew = entry.getValue();
+			final ResourceRecordSet recordOld = currentMap.get(entry.getKey());
+
+			final List<Change> group = new ArrayList<Change>();
+
+			if (recordOld == null) {
+				group.add(new Change(ChangeAction.CREATE, recordNew));
+			} else if (!isSameRecord(recordOld, recordNew)) {
+				group.add(new Change(ChangeAction.DELETE, recordOld));
+				group.add(new Change(ChangeAction.CREATE, recordNew));
+			} else {
+				continue;
+			}
+
+			groupList.add(group);
+
+		}
+
+		return groupList;
+
+	}
+
+	/**
+	 * fetch zone state once and compute changes towards desired records
+	 * 
+	 * @return change groups, see {@link #diffZone}
+	 */
+	public List<List<Change>> reconcilePlan(final HostedZone zone,
+			final List<ResourceRecordSet> desiredList,
+			final boolean isDeleteUnmanaged) {
+
+		for (final ResourceRecordSet record : desiredList) {
+			final HostedZone recordZone = findZone(record.getName());
+			if (recordZone == null || !zone.getId().equals(recordZone.getId())) {
+				throw new IllegalArgumentException("record " + record.getName()
+						+ " is not in zone " + zone.getName());
+			}
+		}
+
+		final List<ResourceRecordSet> currentList = listRecords(zone.getId(),
+				null, null);
+
+		logger.info("zone reconcile : {} current, {} desired",
+				currentList.size(), desiredList.size());
+
+		return diffZone(zone.getName(), currentList, desiredList,
+				isDeleteUnmanaged);
+
+	}
+
+	/**
+	 * submit change groups in batches
+	 * 
+	 * @return submitted change batches
+	 */
+	public List<ChangeInfo> submitGroups(final String zoneId,
+			final List<List<Change>> groupList) {
+
+		final List<ChangeInfo> changeInfoList = new ArrayList<ChangeInfo>();
+
+		for (final List<Change> changeList : batchList(groupList, CHANGE_BATCH)) {
+			changeInfoList.add(submitChanges(zoneId, changeList));
+		}
+
+		return changeInfoList;
+
+	}
+
+	/**
+	 * pack change groups into batches of limited size; a group is never split
+	 * between batches, so that DELETE and CREATE of one record stay atomic
+	 */
+	static List<List<Change>> batchList(final List<List<Change>> groupList,
+			final int limit) {
+
+		final List<List<Change>> batchList = new ArrayList<List<Change>>();
+
+		List<Change> batch = new ArrayList<Change>();
+
+		for (final List<Change> group : groupList) {
+
+			if (!batch.isEmpty() && batch.size() + group.size() > limit) {
+				batchList.add(batch);
+				batch = new ArrayList<Change>();
+			}
+
+			batch.addAll(group);
+
+		}
+
+		if (!batch.isEmpty()) {
+			batchList.add(batch);
+		}
+
+		return batchList;
+
+	}
+
+	/** submit single atomic change batch */
+	public ChangeInfo submitChanges(final String zoneId,
+			final Collection<Change> changeList) {
+
 		final ChangeBatch changeRequest = new ChangeBatch();
 		changeRequest.setComment("updated : " + new Date());
 		changeRequest.setChanges(changeList);
 
 		final ChangeResourceRecordSetsRequest request = new ChangeResourceRecordSetsRequest();
-		request.setHostedZoneId(zone.getId());
+		request.setHostedZoneId(zoneId);
 		request.setChangeBatch(changeRequest);
 
 		final ChangeResourceRecordSetsResult result = amazonClient
@@ -217,8 +634,86 @@ public class CarrotRoute53 {
 
 		final ChangeInfo changeResult = result.getChangeInfo();
 
-		logger.info("changeResult : \n{}", changeResult);
+		logger.info("changeResult : {} changes\n{}", changeList.size(),
+				changeResult);
+
+		return changeResult;
+
+	}
+
+	/** first pause of change status polling, milliseconds */
+	private static final long SYNC_PAUSE_START = 1000;
+
+	/** longest pause of change status polling, milliseconds */
+	private static final long SYNC_PAUSE_LIMIT = 16 * 1000;
+
+	/**
+	 * wait until all changes are propagated to all route53 name servers;
+	 * polling pause starts short and doubles up to a limit
+	 * 
+	 * @param timeout
+	 *            seconds
+	 * 
+	 * @return wait time, milliseconds
+	 */
+	public long waitForSync(final List<ChangeInfo> changeInfoList,
+			final long timeout) throws Exception {
+
+		final long timeStart = System.currentTimeMillis();
+
+		final Set<String> pendingSet = new TreeSet<String>();
+
+		for (final ChangeInfo changeInfo : changeInfoList) {
+			if (!ChangeStatus.INSYNC.toString().equals(changeInfo.getStatus())) {
+				pendingSet.add(changeInfo.getId());
+			}
+		}
+
+		long pause = SYNC_PAUSE_START;
+
+		while (!pendingSet.isEmpty()) {
+
+			final long timeDiff = System.currentTimeMillis() - timeStart;
+
+			if (timeDiff > timeout * 1000) {
+				throw new IllegalStateException("change sync timeout : "
+						+ pendingSet);
+			}
+
+			Thread.sleep(pause);
+
+			pause = Math.min(pause * 2, SYNC_PAUSE_LIMIT);
+
+			for (final String changeId : new ArrayList<String>(pendingSet)) {
+
+				final GetChangeResult result = amazonClient
+						.getChange(new GetChangeRequest(changeId(changeId)));
+
+				final String status = result.getChangeInfo().getStatus();
+
+				if (ChangeStatus.INSYNC.toString().equals(status)) {
+					pendingSet.remove(changeId);
+				}
+
+			}
+
+			logger.info("change sync : time={} pending={}", //
+					(System.currentTimeMillis() - timeStart) / 1000, pendingSet);
+
+		}
+
+		final long timeWait = System.currentTimeMillis() - timeStart;
+
+		logger.info("change sync : done in {} ms", timeWait);
+
+		return timeWait;
+
+	}
 
+	/** change info id can carry resource path prefix */
+	static String changeId(final String id) {
+		final int index = id.lastIndexOf('/');
+		return index < 0 ? id : id.substring(index + 1);
 	}
 
 }
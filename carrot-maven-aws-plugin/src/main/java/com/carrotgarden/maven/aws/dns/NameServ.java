@@ -7,10 +7,13 @@
  */
 package com.carrotgarden.maven.aws.dns;
 
+import java.util.List;
+
 import org.apache.maven.settings.Server;
 import org.slf4j.Logger;
 
 import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.services.route53.model.ChangeInfo;
 import com.carrotgarden.maven.aws.CarrotMojo;
 import com.carrotgarden.maven.aws.util.AWSCredentialsImpl;
 
@@ -40,6 +43,38 @@ public abstract class NameServ extends CarrotMojo {
 	 */
 	private String dnsServerId;
 
+	/**
+	 * should wait until changes are propagated to all route53 name servers
+	 * (change status INSYNC) before goal completes?
+	 * 
+	 * @parameter default-value="false"
+	 */
+	private boolean dnsWaitForSync;
+
+	/**
+	 * change propagation wait timeout, seconds
+	 * 
+	 * @parameter default-value="600"
+	 */
+	private long dnsSyncTimeout;
+
+	/** wait for change propagation, when enabled */
+	protected void waitForSync(final CarrotRoute53 route53,
+			final List<ChangeInfo> changeInfoList) throws Exception {
+
+		if (!dnsWaitForSync || changeInfoList.isEmpty()) {
+			return;
+		}
+
+		getLog().info("dns sync wait : " + changeInfoList.size() + " changes");
+
+		final long timeWait = route53.waitForSync(changeInfoList,
+				dnsSyncTimeout);
+
+		getLog().info("dns sync done : " + timeWait / 1000 + " seconds");
+
+	}
+
 	protected CarrotRoute53 newRoute53() throws Exception {
 
 		final Server server = settings().getServer(dnsServerId);
@@ -7,9 +7,13 @@
  */
 package com.carrotgarden.maven.aws.dns;
 
+import java.util.List;
+
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
+import com.amazonaws.services.route53.model.ChangeInfo;
+
 /**
  * route53:
  * 
@@ -55,9 +59,11 @@ public class NameServEnsureCNAME extends NameServ {
 
 			final CarrotRoute53 route53 = newRoute53();
 
-			route53.ensureCNAME( //
+			final List<ChangeInfo> changeInfoList = route53.ensureCNAME( //
 					route53.canonical(dnsSource), route53.canonical(dnsTarget));
 
+			waitForSync(route53, changeInfoList);
+
 			getLog().info("dns cname done [" + entry + "]");
 
 		} catch (final Exception e) {
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.dns;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.amazonaws.services.route53.model.ChangeInfo;
+
+/**
+ * route53:
+ * 
+ * <b><a href=
+ * "http://docs.amazonwebservices.com/Route53/latest/DeveloperGuide/RRSchanges.html"
+ * >ensure many cname records</a></b>
+ * 
+ * in as few change batches as possible, one or more per hosted zone; records
+ * which already point at their target are left alone;
+ * 
+ * @goal route53-ensure-cname-batch
+ * 
+ * @phase prepare-package
+ * 
+ * @inheritByDefault true
+ * 
+ * @requiresDependencyResolution test
+ * 
+ */
+public class NameServEnsureCNAMEBatch extends NameServ {
+
+	/**
+	 * map of source dns name to target dns name, or left-hand side to
+	 * right-hand side of CNAME record:
+	 * 
+	 * <pre>
+	 * &lt;dnsRecords&gt;
+	 *   &lt;api.example.com&gt;api-1234.elb.amazonaws.com&lt;/api.example.com&gt;
+	 * &lt;/dnsRecords&gt;
+	 * </pre>
+	 * 
+	 * @required
+	 * @parameter
+	 */
+	private Map<String, String> dnsRecords = new HashMap<String, String>();
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+
+		try {
+
+			getLog().info("dns cname batch init " + dnsRecords.keySet());
+
+			final CarrotRoute53 route53 = newRoute53();
+
+			final Map<String, String> recordMap = new TreeMap<String, String>();
+
+			for (final Map.Entry<String, String> entry : dnsRecords.entrySet()) {
+				recordMap.put(route53.canonical(entry.getKey()),
+						route53.canonical(entry.getValue()));
+			}
+
+			final List<ChangeInfo> changeInfoList = route53
+					.ensureCNAME(recordMap);
+
+			waitForSync(route53, changeInfoList);
+
+			getLog().info("dns cname batch done " + dnsRecords.keySet());
+
+		} catch (final Exception e) {
+
+			throw new MojoFailureException("bada-boom", e);
+
+		}
+
+	}
+
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.dns;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.amazonaws.services.route53.model.Change;
+import com.amazonaws.services.route53.model.ChangeInfo;
+import com.amazonaws.services.route53.model.HostedZone;
+import com.amazonaws.services.route53.model.ResourceRecordSet;
+import com.carrotgarden.maven.aws.util.Util;
+
+/**
+ * route53:
+ * 
+ * <b>reconcile hosted zone with desired record sets</b>
+ * 
+ * ({@link #dnsRecordDefinitions});
+ * 
+ * current zone state is read once, the minimal diff is computed in memory
+ * and applied as batched changes; SOA and apex NS records are never removed;
+ * 
+ * @goal route53-reconcile-zone
+ * 
+ * @phase prepare-package
+ * 
+ * @inheritByDefault true
+ * 
+ * @requiresDependencyResolution test
+ * 
+ */
+public class NameServReconcileZone extends NameServ {
+
+	/**
+	 * hosted zone name, such as "example.com"
+	 * 
+	 * @required
+	 * @parameter
+	 */
+	private String dnsZoneName;
+
+	/**
+	 * desired record sets of the zone; see {@link RecordDefinition}
+	 * 
+	 * @parameter
+	 */
+	private List<RecordDefinition> dnsRecordDefinitions = new ArrayList<RecordDefinition>();
+
+	/**
+	 * should remove zone records which are not listed in
+	 * {@link #dnsRecordDefinitions}?
+	 * 
+	 * @parameter default-value="false"
+	 */
+	private boolean dnsDeleteUnmanaged;
+
+	/**
+	 * only report changes, do not apply them
+	 * 
+	 * @parameter default-value="false"
+	 */
+	private boolean dnsReconcileDryRun;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+
+		try {
+
+			getLog().info("dns reconcile init [" + dnsZoneName + "]");
+
+			final CarrotRoute53 route53 = newRoute53();
+
+			final String zoneName = route53.canonical(dnsZoneName);
+
+			final HostedZone zone = route53.findZone(zoneName);
+
+			Util.assertNotNull(zone, "missing zone for " + zoneName);
+
+			if (!CarrotRoute53.isSameName(zoneName, zone.getName())) {
+				throw new IllegalArgumentException("missing zone " + zoneName
+						+ "; found parent zone " + zone.getName());
+			}
+
+			final List<ResourceRecordSet> desiredList = new ArrayList<ResourceRecordSet>();
+			for (final RecordDefinition definition : dnsRecordDefinitions) {
+				desiredList.add(definition.toRecordSet());
+			}
+
+			final List<List<Change>> groupList = route53.reconcilePlan(zone,
+					desiredList, dnsDeleteUnmanaged);
+
+			int countChange = 0;
+
+			for (final List<Change> group : groupList) {
+				for (final Change change : group) {
+					final ResourceRecordSet record = change
+							.getResourceRecordSet();
+					getLog().info(
+							"dns reconcile change : " + change.getAction()
+									+ " " + record.getName() + " "
+									+ record.getType() + " "
+									+ record.getResourceRecords());
+					countChange++;
+				}
+			}
+
+			getLog().info(
+					"dns reconcile plan : " + groupList.size() + " records, "
+							+ countChange + " changes");
+
+			if (dnsReconcileDryRun) {
+				getLog().info("dns reconcile mode : dry run");
+			} else if (!groupList.isEmpty()) {
+				final List<ChangeInfo> changeInfoList = route53.submitGroups(
+						zone.getId(), groupList);
+				waitForSync(route53, changeInfoList);
+			}
+
+			getLog().info("dns reconcile done [" + dnsZoneName + "]");
+
+		} catch (final Exception e) {
+
+			throw new MojoFailureException("bada-boom", e);
+
+		}
+
+	}
+
+}
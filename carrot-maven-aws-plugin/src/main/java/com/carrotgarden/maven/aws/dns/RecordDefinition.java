@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.dns;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.services.route53.model.ResourceRecord;
+import com.amazonaws.services.route53.model.ResourceRecordSet;
+
+/**
+ * single desired record set of a zone; configured in pom.xml as follows:
+ * 
+ * <pre>
+ * &lt;recordDefinition&gt;
+ *   &lt;name&gt;api.example.com&lt;/name&gt;
+ *   &lt;type&gt;CNAME&lt;/type&gt;
+ *   &lt;ttl&gt;60&lt;/ttl&gt;
+ *   &lt;values&gt;
+ *     &lt;value&gt;api-1234.elb.amazonaws.com&lt;/value&gt;
+ *   &lt;/values&gt;
+ * &lt;/recordDefinition&gt;
+ * </pre>
+ */
+public class RecordDefinition {
+
+	/** record name; canonical form is applied */
+	private String name;
+
+	/** record type, such as A, CNAME, TXT */
+	private String type;
+
+	/** record time to live, seconds */
+	private Long ttl = 60L;
+
+	/** record values */
+	private List<String> values = new ArrayList<String>();
+
+	public RecordDefinition() {
+	}
+
+	public RecordDefinition(final String name, final String type,
+			final Long ttl, final List<String> values) {
+		this.name = name;
+		this.type = type;
+		this.ttl = ttl;
+		this.values = values;
+	}
+
+	public ResourceRecordSet toRecordSet() {
+
+		String canonical = name.toLowerCase();
+		if (!canonical.endsWith(".")) {
+			canonical = canonical + ".";
+		}
+
+		final List<ResourceRecord> resourceList = new ArrayList<ResourceRecord>();
+		if (values != null) {
+			for (final String value : values) {
+				resourceList.add(new ResourceRecord(value));
+			}
+		}
+
+		final ResourceRecordSet record = new ResourceRecordSet();
+		record.setName(canonical);
+		record.setType(type);
+		record.setTTL(ttl);
+		record.setResourceRecords(resourceList);
+
+		return record;
+
+	}
+
+	@Override
+	public String toString() {
+		return name + " " + type + " " + values;
+	}
+
+}
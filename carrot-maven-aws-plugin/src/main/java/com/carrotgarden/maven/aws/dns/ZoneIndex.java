@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.dns;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.route53.model.HostedZone;
+
+/**
+ * hosted zone lookup by longest dns suffix; zones are stored in a trie of
+ * reversed name labels, so that "a.example.com." wins over "example.com."
+ * for "host.a.example.com."
+ */
+public class ZoneIndex {
+
+	private static class Node {
+
+		final Map<String, Node> childMap = new HashMap<String, Node>();
+
+		HostedZone zone;
+
+	}
+
+	private final Node root = new Node();
+
+	private final List<HostedZone> zoneList = new ArrayList<HostedZone>();
+
+	public ZoneIndex(final Collection<HostedZone> zoneList) {
+		for (final HostedZone zone : zoneList) {
+			add(zone);
+		}
+	}
+
+	/** @return name labels, top level domain first */
+	static List<String> labels(final String name) {
+
+		final String[] array = name.toLowerCase().split("\\.");
+
+		final List<String> labelList = new ArrayList<String>(array.length);
+
+		for (int index = array.length - 1; index >= 0; index--) {
+			if (array[index].length() > 0) {
+				labelList.add(array[index]);
+			}
+		}
+
+		return labelList;
+
+	}
+
+	/** first zone wins for duplicate zone names */
+	private void add(final HostedZone zone) {
+
+		Node node = root;
+
+		for (final String label : labels(zone.getName())) {
+			Node next = node.childMap.get(label);
+			if (next == null) {
+				next = new Node();
+				node.childMap.put(label, next);
+			}
+			node = next;
+		}
+
+		if (node.zone == null) {
+			node.zone = zone;
+			zoneList.add(zone);
+		}
+
+	}
+
+	/** @return most specific zone which contains the name, or null */
+	public HostedZone find(final String name) {
+
+		HostedZone result = root.zone;
+
+		Node node = root;
+
+		for (final String label : labels(name)) {
+			node = node.childMap.get(label);
+			if (node == null) {
+				break;
+			}
+			if (node.zone != null) {
+				result = node.zone;
+			}
+		}
+
+		return result;
+
+	}
+
+	public List<HostedZone> zoneList() {
+		return zoneList;
+	}
+
+}
@@ -10,15 +10,32 @@ package com.carrotgarden.maven.aws.ecc;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.services.ec2.AmazonEC2;
 import com.amazonaws.services.ec2.AmazonEC2Client;
 import com.amazonaws.services.ec2.model.BlockDeviceMapping;
+import com.amazonaws.services.ec2.model.CopyImageRequest;
+import com.amazonaws.services.ec2.model.CopyImageResult;
 import com.amazonaws.services.ec2.model.CreateImageRequest;
 import com.amazonaws.services.ec2.model.CreateImageResult;
 import com.amazonaws.services.ec2.model.CreateTagsRequest;
@@ -29,12 +46,15 @@ import com.amazonaws.services.ec2.model.DescribeImagesRequest;
 import com.amazonaws.services.ec2.model.DescribeImagesResult;
 import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
 import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.DescribeSnapshotsRequest;
+import com.amazonaws.services.ec2.model.DescribeSnapshotsResult;
 import com.amazonaws.services.ec2.model.EbsBlockDevice;
 import com.amazonaws.services.ec2.model.Filter;
 import com.amazonaws.services.ec2.model.Image;
 import com.amazonaws.services.ec2.model.Instance;
 import com.amazonaws.services.ec2.model.InstanceStateName;
 import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.Snapshot;
 import com.amazonaws.services.ec2.model.StartInstancesRequest;
 import com.amazonaws.services.ec2.model.StartInstancesResult;
 import com.amazonaws.services.ec2.model.StateReason;
@@ -66,6 +86,11 @@ public class CarrotElasticCompute {
 
 	private final String endpoint;
 
+	private final ComputeRetry retry;
+
+	/** initial pause of adaptive polling, milliseconds */
+	private static final long PAUSE_START = 2 * 1000;
+
 	public CarrotElasticCompute(final Logger logger, final long timeout,
 			final AWSCredentials credentials, final String endpoint) {
 
@@ -80,37 +105,64 @@ public class CarrotElasticCompute {
 
 		this.endpoint = endpoint;
 
+		this.retry = new ComputeRetry(logger);
+
 		this.amazonClient = newClient(); // keep last
 
 	}
 
 	private AmazonEC2 newClient() {
 
-		final AmazonEC2 amazonClient = new AmazonEC2Client(credentials);
+		/** retry policy is applied by the wrapper only */
+		final ClientConfiguration config = new ClientConfiguration();
+		config.setMaxErrorRetry(0);
+
+		final AmazonEC2 amazonClient = new AmazonEC2Client(credentials, config);
 
 		amazonClient.setEndpoint(endpoint);
 
-		return amazonClient;
+		return retry.wrap(amazonClient);
 
 	}
 
 	public void tagCreate(final String resourceId, final String key,
 			final String value) {
+		tagCreate(wrapList(resourceId), Collections.singletonMap(key, value));
+	}
 
-		final CreateTagsRequest request = new CreateTagsRequest();
+	/** max resources per tag request */
+	private static final int TAG_BATCH = 1000;
 
-		final Collection<String> resourceList = new ArrayList<String>(1);
-		resourceList.add(resourceId);
+	/**
+	 * apply all tags to all resources with as few requests as possible
+	 */
+	public void tagCreate(final Collection<String> resourceIds,
+			final Map<String, String> tagMap) {
 
-		final Collection<Tag> tagList = new ArrayList<Tag>(1);
-		tagList.add(new Tag(key, value));
+		if (resourceIds.isEmpty() || tagMap.isEmpty()) {
+			return;
+		}
 
-		request.setResources(resourceList);
-		request.setTags(tagList);
+		final Collection<Tag> tagList = new ArrayList<Tag>(tagMap.size());
+		for (final Map.Entry<String, String> entry : tagMap.entrySet()) {
+			tagList.add(new Tag(entry.getKey(), entry.getValue()));
+		}
+
+		final List<String> resourceList = new ArrayList<String>(resourceIds);
+
+		for (int index = 0; index < resourceList.size(); index += TAG_BATCH) {
+
+			final CreateTagsRequest request = new CreateTagsRequest();
 
-		logger.info("tag create request=" + request);
+			request.setResources(resourceList.subList(index,
+					Math.min(index + TAG_BATCH, resourceList.size())));
+			request.setTags(tagList);
 
-		amazonClient.createTags(request);
+			logger.info("tag create request=" + request);
+
+			amazonClient.createTags(request);
+
+		}
 
 	}
 
@@ -176,8 +228,8 @@ public class CarrotElasticCompute {
 		return InstanceStateName.fromValue(instance.getState().getName());
 	}
 
-	private List<String> wrapList(final String entry) {
-		final List<String> list = new ArrayList<String>();
+	private static <T> List<T> wrapList(final T entry) {
+		final List<T> list = new ArrayList<T>();
 		list.add(entry);
 		return list;
 	}
@@ -256,11 +308,176 @@ public class CarrotElasticCompute {
 
 	}
 
+	/**
+	 * describe many instances with one request
+	 * 
+	 * @return instance id -> instance; missing instances are absent
+	 */
+	public Map<String, Instance> findInstances(
+			final Collection<String> instanceIdList) {
+
+		final Map<String, Instance> instanceMap = new HashMap<String, Instance>();
+
+		if (instanceIdList.isEmpty()) {
+			return instanceMap;
+		}
+
+		final DescribeInstancesRequest request = new DescribeInstancesRequest();
+		request.setInstanceIds(new ArrayList<String>(instanceIdList));
+
+		final DescribeInstancesResult result = amazonClient
+				.describeInstances(request);
+
+		for (final Reservation reservation : result.getReservations()) {
+			for (final Instance instance : reservation.getInstances()) {
+				instanceMap.put(instance.getInstanceId(), instance);
+			}
+		}
+
+		return instanceMap;
+
+	}
+
+	/** instance ids in a given state */
+	private Set<String> selectState(final Map<String, Instance> instanceMap,
+			final InstanceStateName... stateArray) {
+
+		final List<InstanceStateName> stateList = Arrays.asList(stateArray);
+
+		final Set<String> idSet = new TreeSet<String>();
+
+		for (final Instance instance : instanceMap.values()) {
+			if (stateList.contains(stateFrom(instance))) {
+				idSet.add(instance.getInstanceId());
+			}
+		}
+
+		return idSet;
+
+	}
+
+	private void assertPresent(final Collection<String> instanceIdList,
+			final Map<String, Instance> instanceMap) {
+
+		final Set<String> missingSet = new TreeSet<String>(instanceIdList);
+		missingSet.removeAll(instanceMap.keySet());
+
+		if (!missingSet.isEmpty()) {
+			throw new IllegalStateException("missing instances : "
+					+ missingSet);
+		}
+
+	}
+
+	/**
+	 * start many instances with one request and wait for all of them
+	 */
+	public void instanceStart(final Collection<String> instanceIdList)
+			throws Exception {
+
+		Map<String, Instance> instanceMap = findInstances(instanceIdList);
+
+		assertPresent(instanceIdList, instanceMap);
+
+		final Set<String> deadSet = selectState(instanceMap,
+				InstanceStateName.ShuttingDown, InstanceStateName.Terminated);
+
+		if (!deadSet.isEmpty()) {
+			throw new IllegalStateException("start: dead instances : "
+					+ deadSet);
+		}
+
+		final Set<String> stoppingSet = selectState(instanceMap,
+				InstanceStateName.Stopping);
+
+		if (!stoppingSet.isEmpty()) {
+			waitForIstanceState(stoppingSet, InstanceStateName.Stopped);
+			instanceMap = findInstances(instanceIdList);
+		}
+
+		final Set<String> stoppedSet = selectState(instanceMap,
+				InstanceStateName.Stopped);
+
+		logger.info("start: instances=" + stoppedSet);
+
+		if (!stoppedSet.isEmpty()) {
+			final StartInstancesRequest request = new StartInstancesRequest();
+			request.setInstanceIds(new ArrayList<String>(stoppedSet));
+			amazonClient.startInstances(request);
+		}
+
+		waitForIstanceState(instanceIdList, InstanceStateName.Running);
+
+	}
+
+	/**
+	 * stop many instances with one request and wait for all of them
+	 */
+	public void instanceStop(final Collection<String> instanceIdList)
+			throws Exception {
+
+		Map<String, Instance> instanceMap = findInstances(instanceIdList);
+
+		assertPresent(instanceIdList, instanceMap);
+
+		final Set<String> pendingSet = selectState(instanceMap,
+				InstanceStateName.Pending);
+
+		if (!pendingSet.isEmpty()) {
+			waitForIstanceState(pendingSet, InstanceStateName.Running);
+			instanceMap = findInstances(instanceIdList);
+		}
+
+		final Set<String> runningSet = selectState(instanceMap,
+				InstanceStateName.Running);
+
+		logger.info("stop: instances=" + runningSet);
+
+		if (!runningSet.isEmpty()) {
+			final StopInstancesRequest request = new StopInstancesRequest();
+			request.setInstanceIds(new ArrayList<String>(runningSet));
+			amazonClient.stopInstances(request);
+		}
+
+		/** terminated instances are already as stopped as they get */
+		final Set<String> waitSet = selectState(findInstances(instanceIdList),
+				InstanceStateName.Pending, InstanceStateName.Running,
+				InstanceStateName.Stopping);
+
+		waitForIstanceState(waitSet, InstanceStateName.Stopped);
+
+	}
+
+	/**
+	 * callback around image snapshot of a running instance in no-reboot mode;
+	 * used to quiesce file systems so that the snapshot is consistent
+	 */
+	public static interface FreezeHook {
+
+		/** invoked before image create request */
+		void freeze(Instance instance) throws Exception;
+
+		/** invoked after image create request, even if it failed */
+		void thaw(Instance instance) throws Exception;
+
+	}
+
 	/**
 	 * stop instance and take image snapshot
 	 */
 	public Image imageCreate(final String instanceId, final String name,
 			final String description) throws Exception {
+		return imageCreate(instanceId, name, description, false, null);
+	}
+
+	/**
+	 * take image snapshot; in no-reboot mode a running instance is left
+	 * running, with optional file system freeze around snapshot start;
+	 * otherwise a running instance is stopped and started again
+	 */
+	public Image imageCreate(final String instanceId, final String name,
+			final String description, final boolean noReboot,
+			final FreezeHook hook) throws Exception {
 
 		logger.info("ensure instance state : instanceId=" + instanceId);
 
@@ -284,32 +501,205 @@ public class CarrotElasticCompute {
 					+ state);
 		}
 
-		if (wasRunning) {
+		final String imageId;
+
+		if (!wasRunning) {
+
+			imageId = imageRequest(instanceId, name, description, false);
+
+		} else if (noReboot) {
+
+			imageId = imageRequestNoReboot(instanceId, name, description, hook);
+
+		} else {
+
 			instanceStop(instanceId);
+
+			imageId = imageRequest(instanceId, name, description, false);
+
+		}
+
+		logger.info("ensure image state: imageId=" + imageId);
+
+		final Image image = waitForImageCreate(imageId);
+
+		if (wasRunning && !noReboot) {
+			instanceStart(instanceId);
 		}
 
+		return image;
+
+	}
+
+	/** snapshot running instance between freeze and thaw */
+	private String imageRequestNoReboot(final String instanceId,
+			final String name, final String description, final FreezeHook hook)
+			throws Exception {
+
+		if (hook == null) {
+			return imageRequest(instanceId, name, description, true);
+		}
+
+		final Instance instance = findInstance(instanceId);
+
+		final String imageId;
+
+		try {
+			/** partial freeze must be undone as well */
+			logger.info("image create : freeze instanceId=" + instanceId);
+			hook.freeze(instance);
+			imageId = imageRequest(instanceId, name, description, true);
+		} catch (final Exception e) {
+			/** report freeze or create failure, not thaw failure */
+			logger.info("image create : thaw instanceId=" + instanceId);
+			try {
+				hook.thaw(instance);
+			} catch (final Exception thaw) {
+				logger.error("image create : thaw failure instanceId="
+						+ instanceId, thaw);
+			}
+			throw e;
+		}
+
+		logger.info("image create : thaw instanceId=" + instanceId);
+
+		hook.thaw(instance);
+
+		return imageId;
+
+	}
+
+	/** @return new image id */
+	private String imageRequest(final String instanceId, final String name,
+			final String description, final boolean noReboot) {
+
 		final CreateImageRequest request = new CreateImageRequest();
 
 		request.setInstanceId(instanceId);
 		request.setName(name);
 		request.setDescription(description);
+		request.setNoReboot(noReboot);
 
 		final CreateImageResult result = amazonClient.createImage(request);
 
-		final String imageId = result.getImageId();
+		return result.getImageId();
 
-		logger.info("ensure image state: imageId=" + imageId);
+	}
 
-		final Image image = waitForImageCreate(imageId);
+	/**
+	 * take image snapshots of many instances at once: all image create
+	 * requests are issued up front, then all images are tracked together; in
+	 * reboot mode amazon reboots each running instance around its snapshot
+	 * 
+	 * @return images in definition order; failed requests are reported as
+	 *         images in {@link ImageState#UNKNOWN} state
+	 */
+	public List<Image> imageCreate(final List<ImageDefinition> definitionList,
+			final boolean noReboot) throws Exception {
+
+		final List<String> imageIdList = new ArrayList<String>();
+
+		final Map<ImageDefinition, Image> failureMap = new HashMap<ImageDefinition, Image>();
+
+		for (final ImageDefinition definition : definitionList) {
+
+			try {
+
+				final String imageId = imageRequest( //
+						definition.getInstanceId(), //
+						definition.getImageName(), //
+						definition.getImageDescription(), //
+						noReboot //
+				);
+
+				logger.info("image create : " + definition + " imageId="
+						+ imageId);
+
+				imageIdList.add(imageId);
+
+			} catch (final Exception e) {
+
+				logger.error("image create : request failure " + definition, e);
+
+				imageIdList.add(null);
+
+				failureMap.put(definition, newImageWithStatus(
+						ImageState.UNKNOWN.value, "request", e.getMessage()));
+
+			}
 
-		if (wasRunning) {
-			instanceStart(instanceId);
 		}
 
-		return image;
+		final Map<String, Image> imageMap = waitForImageCreate(imageIdList);
+
+		final List<Image> resultList = new ArrayList<Image>();
+
+		for (int index = 0; index < definitionList.size(); index++) {
+			final String imageId = imageIdList.get(index);
+			if (imageId == null) {
+				resultList.add(failureMap.get(definitionList.get(index)));
+			} else {
+				resultList.add(imageMap.get(imageId));
+			}
+		}
+
+		return resultList;
+
+	}
+
+	/** tag image and its EBS snapshots */
+	public void imageTagCreate(final Image image, final String key,
+			final String value) {
+		imageTagCreate(image, Collections.singletonMap(key, value));
+	}
+
+	/** tag image and its EBS snapshots with one request */
+	public void imageTagCreate(final Image image,
+			final Map<String, String> tagMap) {
+
+		final List<String> resourceList = new ArrayList<String>();
+
+		resourceList.add(image.getImageId());
+		resourceList.addAll(snapshotIdList(image));
+
+		tagCreate(resourceList, tagMap);
 
 	}
 
+	/**
+	 * copy image from another region into the region of this controller
+	 * 
+	 * @return new image id
+	 */
+	public String imageCopy(final String sourceRegion,
+			final String sourceImageId, final String name,
+			final String description) {
+
+		final CopyImageRequest request = new CopyImageRequest();
+
+		request.setSourceRegion(sourceRegion);
+		request.setSourceImageId(sourceImageId);
+		request.setName(name);
+		request.setDescription(description);
+
+		final CopyImageResult result = amazonClient.copyImage(request);
+
+		logger.info("image copy : " + sourceRegion + "/" + sourceImageId
+				+ " -> " + endpoint + "/" + result.getImageId());
+
+		return result.getImageId();
+
+	}
+
+	/**
+	 * wait for new image to become available
+	 * 
+	 * @return final image
+	 */
+	public Image imageWait(final String imageId) throws Exception {
+		return waitForImageCreate(imageId);
+	}
+
 	/**
 	 * @return valid image or null if missing
 	 */
@@ -317,9 +707,10 @@ public class CarrotElasticCompute {
 
 		/**
 		 * work around for image entry not being immediately available right
-		 * after create/register operation
+		 * after create/register operation; missing id errors are retried by
+		 * the client only, empty descriptions are retried here
 		 */
-		for (int index = 0; index < attemptCount; index++) {
+		for (int index = 1; index <= attemptCount; index++) {
 
 			try {
 
@@ -344,13 +735,15 @@ public class CarrotElasticCompute {
 				}
 
 			} catch (final Exception e) {
-				logger.info("image find : exception imageId={} / {}", //
+				/** client retries are already exhausted */
+				logger.error("image find : exception imageId={} / {}", //
 						imageId, e.getMessage());
+				return null;
 			}
 
 			logger.info("image find : attempt=" + index);
 
-			sleep();
+			retry.sleep(index);
 
 		}
 
@@ -366,7 +759,15 @@ public class CarrotElasticCompute {
 		final DeleteSnapshotRequest request = new DeleteSnapshotRequest();
 		request.setSnapshotId(snapshotId);
 
-		amazonClient.deleteSnapshot(request);
+		try {
+			amazonClient.deleteSnapshot(request);
+		} catch (final AmazonServiceException e) {
+			if ("InvalidSnapshot.NotFound".equals(e.getErrorCode())) {
+				logger.info("missing snapshotId = " + snapshotId);
+				return;
+			}
+			throw e;
+		}
 
 		logger.info("removed snapshotId = " + snapshotId);
 
@@ -409,6 +810,259 @@ public class CarrotElasticCompute {
 
 	}
 
+	/** snapshot ids of image EBS devices */
+	private static List<String> snapshotIdList(final Image image) {
+
+		final List<String> snapshotIdList = new ArrayList<String>();
+
+		for (final BlockDeviceMapping blockDevice : image
+				.getBlockDeviceMappings()) {
+
+			final EbsBlockDevice elasticDevice = blockDevice.getEbs();
+
+			if (elasticDevice == null) {
+				continue;
+			}
+
+			final String snapshotId = elasticDevice.getSnapshotId();
+
+			if (snapshotId == null) {
+				continue;
+			}
+
+			snapshotIdList.add(snapshotId);
+
+		}
+
+		return snapshotIdList;
+
+	}
+
+	/** max snapshot ids per describe request */
+	private static final int SNAPSHOT_BATCH = 200;
+
+	/**
+	 * describe EBS snapshots of many images with few requests
+	 * 
+	 * @return snapshot id -> snapshot; missing snapshots are absent
+	 */
+	public Map<String, Snapshot> findSnapshots(final Collection<Image> imageList) {
+
+		final List<String> snapshotIdList = new ArrayList<String>();
+
+		for (final Image image : imageList) {
+			snapshotIdList.addAll(snapshotIdList(image));
+		}
+
+		final Map<String, Snapshot> snapshotMap = new HashMap<String, Snapshot>();
+
+		for (int index = 0; index < snapshotIdList.size(); index += SNAPSHOT_BATCH) {
+
+			final List<String> batchList = snapshotIdList.subList(index,
+					Math.min(index + SNAPSHOT_BATCH, snapshotIdList.size()));
+
+			/** filter does not fail on missing snapshot, unlike id list */
+			final DescribeSnapshotsRequest request = new DescribeSnapshotsRequest();
+			request.setFilters(wrapList(new Filter("snapshot-id",
+					new ArrayList<String>(batchList))));
+
+			final DescribeSnapshotsResult result = amazonClient
+					.describeSnapshots(request);
+
+			for (final Snapshot snapshot : result.getSnapshots()) {
+				snapshotMap.put(snapshot.getSnapshotId(), snapshot);
+			}
+
+		}
+
+		return snapshotMap;
+
+	}
+
+	/**
+	 * image creation time is approximated by its earliest EBS snapshot start
+	 * time, since image description does not carry one
+	 * 
+	 * @return image time or null if unknown
+	 */
+	static Date imageTime(final Image image,
+			final Map<String, Snapshot> snapshotMap) {
+
+		Date imageTime = null;
+
+		for (final String snapshotId : snapshotIdList(image)) {
+
+			final Snapshot snapshot = snapshotMap.get(snapshotId);
+
+			if (snapshot == null || snapshot.getStartTime() == null) {
+				continue;
+			}
+
+			if (imageTime == null || snapshot.getStartTime().before(imageTime)) {
+				imageTime = snapshot.getStartTime();
+			}
+
+		}
+
+		return imageTime;
+
+	}
+
+	/**
+	 * total volume size of image EBS snapshots, GiB; this is provisioned
+	 * size, not snapshot storage, which is incremental and can be shared
+	 * with other snapshots, so deleting the image frees less or nothing
+	 */
+	static long imageSize(final Image image,
+			final Map<String, Snapshot> snapshotMap) {
+
+		long size = 0;
+
+		for (final String snapshotId : snapshotIdList(image)) {
+
+			final Snapshot snapshot = snapshotMap.get(snapshotId);
+
+			if (snapshot == null || snapshot.getVolumeSize() == null) {
+				continue;
+			}
+
+			size += snapshot.getVolumeSize();
+
+		}
+
+		return size;
+
+	}
+
+	/**
+	 * select images beyond retention: images are grouped by value of a given
+	 * field, see {@link #searchValue(Image, String)}, and the newest images of
+	 * each group are kept; images of unknown time are always kept
+	 * 
+	 * @return images to delete
+	 */
+	static List<Image> imagePruneList(final List<Image> imageList,
+			final Map<String, Snapshot> snapshotMap, final String groupField,
+			final int keepCount) {
+
+		if (keepCount < 1) {
+			throw new IllegalArgumentException("keep count must be >= 1 : "
+					+ keepCount);
+		}
+
+		final Map<String, List<Image>> groupMap = new TreeMap<String, List<Image>>();
+
+		for (final Image image : imageList) {
+
+			if (imageTime(image, snapshotMap) == null) {
+				continue;
+			}
+
+			final String group = searchValue(image, groupField);
+
+			/** never pool unrelated images into one group */
+			if (group == null || group.length() == 0) {
+				continue;
+			}
+
+			List<Image> groupList = groupMap.get(group);
+			if (groupList == null) {
+				groupList = new ArrayList<Image>();
+				groupMap.put(group, groupList);
+			}
+			groupList.add(image);
+
+		}
+
+		final Comparator<Image> newestFirst = new Comparator<Image>() {
+			@Override
+			public int compare(final Image one, final Image two) {
+				return imageTime(two, snapshotMap).compareTo(
+						imageTime(one, snapshotMap));
+			}
+		};
+
+		final List<Image> pruneList = new ArrayList<Image>();
+
+		for (final List<Image> groupList : groupMap.values()) {
+
+			Collections.sort(groupList, newestFirst);
+
+			if (groupList.size() > keepCount) {
+				pruneList.addAll(groupList.subList(keepCount,
+						groupList.size()));
+			}
+
+		}
+
+		return pruneList;
+
+	}
+
+	/**
+	 * delete AMI images and related EBS snapshots concurrently, on a bounded
+	 * pool; request throttling is retried by {@link ComputeRetry}
+	 * 
+	 * @return ids of images which failed to delete
+	 */
+	public Set<String> imageDelete(final Collection<Image> imageList,
+			final int parallelism) throws Exception {
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math
+				.max(1, parallelism));
+
+		try {
+
+			final Map<String, Future<?>> futureMap = new TreeMap<String, Future<?>>();
+
+			for (final Image image : imageList) {
+				futureMap.put(image.getImageId(),
+						executor.submit(new Callable<Void>() {
+							@Override
+							public Void call() throws Exception {
+								imageDeleteBulk(image);
+								return null;
+							}
+						}));
+			}
+
+			final Set<String> failureSet = new TreeSet<String>();
+
+			for (final Map.Entry<String, Future<?>> entry : futureMap
+					.entrySet()) {
+				try {
+					entry.getValue().get();
+				} catch (final ExecutionException e) {
+					logger.error("image delete : failure imageId="
+							+ entry.getKey(), e.getCause());
+					failureSet.add(entry.getKey());
+				}
+			}
+
+			return failureSet;
+
+		} finally {
+
+			executor.shutdownNow();
+
+		}
+
+	}
+
+	private void imageDeleteBulk(final Image image) throws Exception {
+
+		final String imageId = image.getImageId();
+
+		imageUnregister(imageId);
+
+		for (final String snapshotId : snapshotIdList(image)) {
+			snapshotDelete(snapshotId);
+		}
+
+		logger.info("removed imageId = " + imageId);
+
+	}
+
 	/** List AMI images matching a given filter and regex. */
 	public List<Image> imageList(//
 			final String imageFilter, //
@@ -418,10 +1072,82 @@ public class CarrotElasticCompute {
 			final String valueSplit //
 	) throws Exception {
 
-		final String[] entryArray = imageFilter.split(entrySplit);
+		final List<Filter> filterList = filterList(imageFilter, entrySplit,
+				keySplit, valueSplit);
+
+		return imageList(new ArrayList<String>(), filterList, imageRegex,
+				FIELD_TO_STRING);
+
+	}
+
+	/** regex field which matches whole image description */
+	public static final String FIELD_TO_STRING = "toString";
+
+	/** regex field prefix which selects image tag value by tag key */
+	public static final String FIELD_TAG = "tag:";
+
+	/**
+	 * List AMI images owned by given owners and matching server side filters,
+	 * then matching regex against a single image field.
+	 * 
+	 * @param ownerList
+	 *            owner account ids, or "self", "amazon"; empty for any owner
+	 * @param imageField
+	 *            one of "toString", "imageId", "name", "description",
+	 *            "imageLocation", "tag:key"
+	 */
+	public List<Image> imageList(//
+			final List<String> ownerList, //
+			final List<Filter> filterList, //
+			final String imageRegex, //
+			final String imageField //
+	) throws Exception {
+
+		final DescribeImagesRequest request = new DescribeImagesRequest();
+		request.setOwners(ownerList);
+		request.setFilters(filterList);
+
+		final DescribeImagesResult result = amazonClient
+				.describeImages(request);
+
+		final List<Image> resultImages = result.getImages();
+
+		/** avoid per image search text for match all */
+		if (".*".equals(imageRegex)) {
+			return resultImages;
+		}
+
+		final List<Image> imageList = new ArrayList<Image>();
+
+		final Pattern pattern = Pattern.compile(imageRegex);
+
+		for (final Image image : resultImages) {
+			final String search = searchValue(image, imageField);
+			if (search != null && pattern.matcher(search).matches()) {
+				imageList.add(image);
+			}
+		}
+
+		return imageList;
+
+	}
+
+	/** parse "key-1=value-A,value-B;key-2=value-C" filter expression */
+	public static List<Filter> filterList(//
+			final String imageFilter, //
+			final String entrySplit, //
+			final String keySplit, //
+			final String valueSplit //
+	) {
 
 		final List<Filter> filterList = new ArrayList<Filter>();
 
+		if (imageFilter == null || imageFilter.trim().length() == 0) {
+			return filterList;
+		}
+
+		final String[] entryArray = imageFilter.split(entrySplit);
+
 		for (final String entry : entryArray) {
 
 			final String[] termArray = entry.split(keySplit);
@@ -437,26 +1163,45 @@ public class CarrotElasticCompute {
 
 		}
 
-		final DescribeImagesRequest request = new DescribeImagesRequest();
-		request.setFilters(filterList);
+		return filterList;
 
-		final DescribeImagesResult result = amazonClient
-				.describeImages(request);
+	}
 
-		final List<Image> resultImages = result.getImages();
+	/** @return image field value used for regex match; null if missing */
+	static String searchValue(final Image image, final String imageField) {
 
-		final List<Image> imageList = new ArrayList<Image>();
+		if (imageField == null || FIELD_TO_STRING.equals(imageField)) {
+			return image.toString();
+		}
 
-		final Pattern pattern = Pattern.compile(imageRegex);
+		if ("imageId".equals(imageField)) {
+			return image.getImageId();
+		}
 
-		for (final Image image : resultImages) {
-			final String search = image.toString();
-			if (pattern.matcher(search).matches()) {
-				imageList.add(image);
+		if ("name".equals(imageField)) {
+			return image.getName();
+		}
+
+		if ("description".equals(imageField)) {
+			return image.getDescription();
+		}
+
+		if ("imageLocation".equals(imageField)) {
+			return image.getImageLocation();
+		}
+
+		if (imageField.startsWith(FIELD_TAG)) {
+			final String key = imageField.substring(FIELD_TAG.length());
+			for (final Tag tag : image.getTags()) {
+				if (key.equals(tag.getKey())) {
+					return tag.getValue();
+				}
 			}
+			return null;
 		}
 
-		return imageList;
+		throw new IllegalArgumentException("unknown image field : "
+				+ imageField);
 
 	}
 
@@ -545,6 +1290,58 @@ public class CarrotElasticCompute {
 
 	}
 
+	/**
+	 * track many instances with one describe request per poll; poll pause
+	 * starts short and grows while nothing changes, up to
+	 * {@link #attemptPause}
+	 */
+	private void waitForIstanceState(final Collection<String> instanceIdList,
+			final InstanceStateName stateName) throws Exception {
+
+		final Set<String> pendingSet = new TreeSet<String>(instanceIdList);
+
+		final long timeStart = System.currentTimeMillis();
+
+		final long pauseLimit = attemptPause * 1000;
+
+		long pause = Math.min(PAUSE_START, pauseLimit);
+
+		while (!pendingSet.isEmpty()) {
+
+			if (isTimeoutPending(timeStart)) {
+				logger.error("instance state : timeout " + pendingSet);
+				throw new Exception("timeout");
+			}
+
+			final Map<String, Instance> instanceMap = findInstances(pendingSet);
+
+			assertPresent(pendingSet, instanceMap);
+
+			final boolean isChanged = pendingSet.removeAll(selectState(
+					instanceMap, stateName));
+
+			if (pendingSet.isEmpty()) {
+				logger.info("instance state : done");
+				break;
+			}
+
+			if (isChanged) {
+				pause = Math.min(PAUSE_START, pauseLimit);
+			} else {
+				pause = Math.min(pause * 2, pauseLimit);
+			}
+
+			final long timeThis = System.currentTimeMillis();
+			final long timeDiff = timeThis - timeStart;
+			logger.info("instance state; time=" + timeDiff / 1000
+					+ " pending=" + pendingSet);
+
+			sleep(pause);
+
+		}
+
+	}
+
 	private Image waitForImageCreate(final String imageId) throws Exception {
 
 		if (findImage(imageId) == null) {
@@ -552,64 +1349,106 @@ public class CarrotElasticCompute {
 					+ imageId);
 		}
 
-		final long timeStart = System.currentTimeMillis();
+		return waitForImageCreate(wrapList(imageId)).get(imageId);
 
-		final List<String> imageIdList = new ArrayList<String>();
-		imageIdList.add(imageId);
+	}
 
-		final DescribeImagesRequest request = new DescribeImagesRequest();
-		request.setImageIds(imageIdList);
+	/**
+	 * track many images with one describe request per poll
+	 * 
+	 * @param imageIdList
+	 *            image ids; null entries are ignored
+	 * 
+	 * @return image id -> final image
+	 */
+	private Map<String, Image> waitForImageCreate(
+			final List<String> imageIdList) throws Exception {
 
-		while (true) {
+		final Map<String, Image> resultMap = new HashMap<String, Image>();
 
-			final DescribeImagesResult result = amazonClient
-					.describeImages(request);
+		final Set<String> pendingSet = new TreeSet<String>();
+
+		for (final String imageId : imageIdList) {
+			if (imageId == null) {
+				continue;
+			}
+			/** new image entry is not immediately visible */
+			if (findImage(imageId) == null) {
+				resultMap.put(imageId, newImageWithStatus(
+						ImageState.UNKNOWN.value, "missing",
+						"image create: missing imageId=" + imageId));
+			} else {
+				pendingSet.add(imageId);
+			}
+		}
 
-			final List<Image> imageList = result.getImages();
+		final long timeStart = System.currentTimeMillis();
 
-			final Image image;
+		while (!pendingSet.isEmpty()) {
 
 			if (isTimeoutPending(timeStart)) {
-				image = newImageWithStatus(ImageState.UNKNOWN.value, "timeout",
-						"image create: timeout while waiting");
-			} else if (imageList == null || imageList.isEmpty()) {
-				image = newImageWithStatus(ImageState.UNKNOWN.value, "missing",
-						"image create: missing in descriptions");
-			} else {
-				image = imageList.get(0);
+				for (final String imageId : pendingSet) {
+					logger.error("image create: timeout imageId=" + imageId);
+					resultMap.put(imageId, newImageWithStatus(
+							ImageState.UNKNOWN.value, "timeout",
+							"image create: timeout while waiting"));
+				}
+				break;
 			}
 
-			final String value = image.getState();
+			final DescribeImagesRequest request = new DescribeImagesRequest();
+			request.setImageIds(new ArrayList<String>(pendingSet));
 
-			final ImageState state = ImageState.fromValue(value);
+			final DescribeImagesResult result = amazonClient
+					.describeImages(request);
 
-			switch (state) {
+			for (final Image image : result.getImages()) {
 
-			case AVAILABLE:
-				logger.info("image create: success");
-				return image;
+				final String imageId = image.getImageId();
 
-			case PENDING:
-				final long timeThis = System.currentTimeMillis();
-				final long timeDiff = timeThis - timeStart;
-				logger.info("image create: in progress; time=" + timeDiff
-						/ 1000);
-				sleep();
-				break;
+				final ImageState state = ImageState.fromValue(image.getState());
 
-			default:
-				logger.error("image create: failure");
-				return image;
+				switch (state) {
+				case PENDING:
+					break;
+				case AVAILABLE:
+					logger.info("image create: success imageId=" + imageId);
+					resultMap.put(imageId, image);
+					pendingSet.remove(imageId);
+					break;
+				default:
+					logger.error("image create: failure imageId=" + imageId);
+					resultMap.put(imageId, image);
+					pendingSet.remove(imageId);
+					break;
+				}
+
+			}
 
+			if (pendingSet.isEmpty()) {
+				break;
 			}
 
+			final long timeThis = System.currentTimeMillis();
+			final long timeDiff = timeThis - timeStart;
+			logger.info("image create: in progress; time=" + timeDiff / 1000
+					+ " pending=" + pendingSet);
+
+			sleep();
+
 		}
 
+		return resultMap;
+
 	}
 
 	private void sleep() throws Exception {
+		sleep(attemptPause * 1000);
+	}
+
+	private void sleep(final long millis) throws Exception {
 		try {
-			Thread.sleep(attemptPause * 1000);
+			Thread.sleep(millis);
 		} catch (final InterruptedException ie) {
 			throw new IllegalStateException("operation interrupted; "
 					+ "resources are left in inconsistent state; "
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ecc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.slf4j.Logger;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.ec2.AmazonEC2;
+
+/**
+ * retry policy for elastic compute requests: exponential backoff with full
+ * jitter, applied to throttling and to eventual consistency errors, such as
+ * new image or instance id not yet visible to the api
+ */
+public class ComputeRetry {
+
+	/** request was rejected before execution; always safe to retry */
+	public static final Set<String> THROTTLE_CODES = new HashSet<String>(
+			Arrays.asList( //
+					"RequestLimitExceeded", //
+					"Throttling" //
+			));
+
+	/**
+	 * transient errors and eventual consistency errors; request could have
+	 * been executed, so retry only idempotent requests
+	 */
+	public static final Set<String> RETRY_CODES = new HashSet<String>(
+			Arrays.asList( //
+					"InternalError", //
+					"Unavailable", //
+					"InvalidAMIID.Unavailable", //
+					"InvalidSnapshot.InUse" //
+			));
+
+	/**
+	 * new resource id not yet visible to the api; retry only "describe"
+	 * requests, since for a delete or a change the resource could be really
+	 * gone
+	 */
+	public static final Set<String> NOT_FOUND_CODES = new HashSet<String>(
+			Arrays.asList( //
+					"InvalidAMIID.NotFound", //
+					"InvalidInstanceID.NotFound", //
+					"InvalidSnapshot.NotFound" //
+			));
+
+	/**
+	 * requests which can be repeated without side effects, in addition to
+	 * all "describe" requests; create requests such as createImage,
+	 * copyImage, runInstances, createSnapshot are not, since a repeat after
+	 * server side success makes a duplicate
+	 */
+	public static final Set<String> IDEMPOTENT_METHODS = new HashSet<String>(
+			Arrays.asList( //
+					"createTags", //
+					"deleteTags", //
+					"startInstances", //
+					"stopInstances", //
+					"deleteSnapshot" //
+			));
+
+	private final Logger logger;
+
+	/** total number of attempts per request */
+	private final int attemptCount;
+
+	/** first backoff pause, milliseconds */
+	private final long pauseStart;
+
+	/** longest backoff pause, milliseconds */
+	private final long pauseLimit;
+
+	private final Random random = new Random();
+
+	public ComputeRetry(final Logger logger) {
+		this(logger, 8, 200, 20 * 1000);
+	}
+
+	public ComputeRetry(final Logger logger, final int attemptCount,
+			final long pauseStart, final long pauseLimit) {
+		this.logger = logger;
+		this.attemptCount = attemptCount;
+		this.pauseStart = pauseStart;
+		this.pauseLimit = pauseLimit;
+	}
+
+	public static boolean isIdempotent(final String method) {
+		return method.startsWith("describe")
+				|| IDEMPOTENT_METHODS.contains(method);
+	}
+
+	public static boolean isRetryable(final String method,
+			final Throwable error) {
+		if (error instanceof AmazonServiceException) {
+			final String code = ((AmazonServiceException) error)
+					.getErrorCode();
+			if (THROTTLE_CODES.contains(code)) {
+				return true;
+			}
+			if (NOT_FOUND_CODES.contains(code)) {
+				return method.startsWith("describe");
+			}
+			return isIdempotent(method) && RETRY_CODES.contains(code);
+		}
+		return false;
+	}
+
+	/**
+	 * @return random pause in [0, min(limit, start * 2^(attempt-1))],
+	 *         milliseconds
+	 */
+	public long backoff(final int attempt) {
+		final int shift = Math.min(Math.max(attempt - 1, 0), 30);
+		final long ceiling = Math.min(pauseLimit, pauseStart << shift);
+		synchronized (random) {
+			return (long) (random.nextDouble() * ceiling);
+		}
+	}
+
+	public void sleep(final int attempt) {
+		try {
+			Thread.sleep(backoff(attempt));
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("operation interrupted");
+		}
+	}
+
+	/**
+	 * wrap client so that every request follows this policy; only throttled
+	 * requests are retried for non idempotent methods
+	 */
+	public AmazonEC2 wrap(final AmazonEC2 client) {
+
+		final InvocationHandler handler = new InvocationHandler() {
+			@Override
+			public Object invoke(final Object proxy, final Method method,
+					final Object[] args) throws Throwable {
+
+				for (int attempt = 1;; attempt++) {
+
+					try {
+						return method.invoke(client, args);
+					} catch (final InvocationTargetException e) {
+						final Throwable cause = e.getCause();
+						if (attempt >= attemptCount
+								|| !isRetryable(method.getName(), cause)) {
+							throw cause;
+						}
+						logger.info("request retry : " + method.getName()
+								+ " / " + ((AmazonServiceException) cause)
+										.getErrorCode() + " attempt="
+								+ attempt);
+					}
+
+					sleep(attempt);
+
+				}
+
+			}
+		};
+
+		return (AmazonEC2) Proxy.newProxyInstance(
+				AmazonEC2.class.getClassLoader(),
+				new Class<?>[] { AmazonEC2.class }, handler);
+
+	}
+
+}
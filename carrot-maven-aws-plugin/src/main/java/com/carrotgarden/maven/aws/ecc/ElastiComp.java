@@ -75,6 +75,18 @@ public abstract class ElastiComp extends CarrotMojo {
 	}
 
 	protected CarrotElasticCompute newElasticCompute() throws Exception {
+		return newElasticComputeAt(computeEndpoint());
+	}
+
+	/** compute controller for another amazon region */
+	protected CarrotElasticCompute newElasticCompute(final String region)
+			throws Exception {
+		return newElasticComputeAt(String.format(computeEndpointFormat,
+				region));
+	}
+
+	private CarrotElasticCompute newElasticComputeAt(final String endpoint)
+			throws Exception {
 
 		final Server server = settings().getServer(computeServerId);
 
@@ -92,7 +104,7 @@ public abstract class ElastiComp extends CarrotMojo {
 				logger, //
 				computeTimeout, //
 				credentials, //
-				computeEndpoint() //
+				endpoint //
 		);
 
 		return compute;
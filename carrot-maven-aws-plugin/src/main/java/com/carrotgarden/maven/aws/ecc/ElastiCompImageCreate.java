@@ -7,12 +7,28 @@
  */
 package com.carrotgarden.maven.aws.ecc;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.apache.maven.plugin.MojoFailureException;
 
-import com.amazonaws.services.ec2.model.BlockDeviceMapping;
-import com.amazonaws.services.ec2.model.EbsBlockDevice;
 import com.amazonaws.services.ec2.model.Image;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Tag;
+import com.carrotgarden.maven.aws.ecc.CarrotElasticCompute.FreezeHook;
 import com.carrotgarden.maven.aws.ecc.CarrotElasticCompute.ImageState;
+import com.carrotgarden.maven.aws.ssh.CarrotSecureShell;
+import com.carrotgarden.maven.aws.util.Util;
 
 /**
  * create new ami image from existing AWS ElasticCompute instance
@@ -100,6 +116,245 @@ public class ElastiCompImageCreate extends ElastiComp {
 	 */
 	private String imageDescription;
 
+	/**
+	 * take image of a running instance without stop/start cycle; file system
+	 * consistency is not guaranteed by amazon, see {@link #imageFreezeCommand}
+	 * 
+	 * @parameter default-value="false"
+	 */
+	private boolean imageNoReboot;
+
+	/**
+	 * optional ssh command executed on the instance right before image create
+	 * request in {@link #imageNoReboot} mode, for example:
+	 * 
+	 * <pre>
+	 * sudo sync &amp;&amp; sudo fsfreeze -f /data
+	 * </pre>
+	 * 
+	 * freeze only volumes which are not needed by sshd to accept the
+	 * {@link #imageThawCommand} login
+	 * 
+	 * @parameter
+	 */
+	private String imageFreezeCommand;
+
+	/**
+	 * optional ssh command executed on the instance right after image create
+	 * request in {@link #imageNoReboot} mode, even if request failed, for
+	 * example:
+	 * 
+	 * <pre>
+	 * sudo fsfreeze -u /data
+	 * </pre>
+	 * 
+	 * @parameter
+	 */
+	private String imageThawCommand;
+
+	/**
+	 * ssh key file for freeze / thaw commands
+	 * 
+	 * @parameter default-value="${user.home}/.amazon/ssh-key.pem"
+	 */
+	private String imageSshKeyFile;
+
+	/**
+	 * ssh user name for freeze / thaw commands
+	 * 
+	 * @parameter default-value="ubuntu"
+	 */
+	private String imageSshUser;
+
+	/**
+	 * ssh host port for freeze / thaw commands
+	 * 
+	 * @parameter default-value="22"
+	 */
+	private int imageSshPort;
+
+	/**
+	 * ssh host name for freeze / thaw commands; when omitted, instance public
+	 * dns name is used
+	 * 
+	 * @parameter
+	 */
+	private String imageSshHost;
+
+	/**
+	 * amazon regions to copy new image into; all copies run concurrently and
+	 * receive the tags of the new image
+	 * 
+	 * @parameter
+	 */
+	private List<String> imageCopyRegions = new ArrayList<String>();
+
+	/**
+	 * format of project.property name which will contain image copy id after
+	 * this execution; argument is target region name
+	 * 
+	 * @required
+	 * @parameter default-value="amazonImageId.%s"
+	 */
+	private String imageCopyIdResultFormat;
+
+	/**
+	 * copy image into {@link #imageCopyRegions}, wait for all copies, tag them
+	 * and publish their ids
+	 */
+	private void copyImage(final CarrotElasticCompute compute,
+			final String imageId) throws Exception {
+
+		/** re-read to pick up tags */
+		final Image source = compute.findImage(imageId);
+
+		Util.assertNotNull(source, "missing source image for copy : "
+				+ imageId);
+
+		final Map<String, String> tagMap = new TreeMap<String, String>();
+		for (final Tag tag : source.getTags()) {
+			tagMap.put(tag.getKey(), tag.getValue());
+		}
+
+		final String sourceRegion = amazonRegion();
+		final String name = imageName();
+		final String description = imageDescription;
+
+		final ExecutorService executor = Executors
+				.newFixedThreadPool(imageCopyRegions.size());
+
+		try {
+
+			final Map<String, Future<Image>> futureMap = new TreeMap<String, Future<Image>>();
+
+			for (final String region : imageCopyRegions) {
+
+				final CarrotElasticCompute target = newElasticCompute(region);
+
+				futureMap.put(region, executor.submit(new Callable<Image>() {
+					@Override
+					public Image call() throws Exception {
+
+						final String copyId = target.imageCopy(sourceRegion,
+								imageId, name, description);
+
+						final Image copy = target.imageWait(copyId);
+
+						Util.assertNotNull(copy, "missing image copy : "
+								+ copyId);
+
+						if (ImageState.AVAILABLE == ImageState.fromValue(copy
+								.getState())) {
+							target.imageTagCreate(copy, tagMap);
+						}
+
+						return copy;
+
+					}
+				}));
+
+			}
+
+			final Set<String> failureSet = new TreeSet<String>();
+
+			for (final Map.Entry<String, Future<Image>> entry : futureMap
+					.entrySet()) {
+
+				final String region = entry.getKey();
+
+				final Image copy;
+				try {
+					copy = entry.getValue().get();
+				} catch (final ExecutionException e) {
+					getLog().error("image copy failure [" + region + "]",
+							e.getCause());
+					failureSet.add(region);
+					continue;
+				}
+
+				if (ImageState.AVAILABLE != ImageState.fromValue(copy
+						.getState())) {
+					getLog().error(
+							"image copy failed [" + region + "] : \n" + copy);
+					failureSet.add(region);
+					continue;
+				}
+
+				final String key = String.format(imageCopyIdResultFormat,
+						region);
+
+				project().getProperties().put(key, copy.getImageId());
+
+				getLog().info(
+						"image copy done [" + region + "] " + key + "="
+								+ copy.getImageId());
+
+			}
+
+			if (!failureSet.isEmpty()) {
+				throw new IllegalStateException("image copy failed : "
+						+ failureSet);
+			}
+
+		} finally {
+
+			executor.shutdownNow();
+
+		}
+
+	}
+
+	private void executeHook(final Instance instance, final String command)
+			throws Exception {
+
+		if (command == null) {
+			return;
+		}
+
+		final String host = imageSshHost == null ? instance.getPublicDnsName()
+				: imageSshHost;
+
+		final CarrotSecureShell ssh = new CarrotSecureShell( //
+				getLogger(getClass()), //
+				new File(imageSshKeyFile), //
+				imageSshUser, //
+				host, //
+				imageSshPort, //
+				5, //
+				10 //
+		);
+
+		final int status = ssh.execute(command);
+
+		if (status != 0) {
+			throw new IllegalStateException("image hook failed : status="
+					+ status + " command=" + command);
+		}
+
+	}
+
+	private FreezeHook newFreezeHook() {
+
+		if (imageFreezeCommand == null && imageThawCommand == null) {
+			return null;
+		}
+
+		return new FreezeHook() {
+
+			@Override
+			public void freeze(final Instance instance) throws Exception {
+				executeHook(instance, imageFreezeCommand);
+			}
+
+			@Override
+			public void thaw(final Instance instance) throws Exception {
+				executeHook(instance, imageThawCommand);
+			}
+
+		};
+
+	}
+
 	@Override
 	public void execute() throws MojoFailureException {
 
@@ -112,7 +367,9 @@ public class ElastiCompImageCreate extends ElastiComp {
 			final Image image = compute.imageCreate( //
 					imageInstanceId(), //
 					imageName(), //
-					imageDescription //
+					imageDescription, //
+					imageNoReboot, //
+					newFreezeHook() //
 					);
 
 			final ImageState state = ImageState.fromValue(image.getState());
@@ -131,31 +388,15 @@ public class ElastiCompImageCreate extends ElastiComp {
 			project().getProperties().put(imageResultProperty, image);
 			project().getProperties().put(imageIdResultProperty, imageId);
 
-			/** tag image */
-			compute.tagCreate(imageId, amazonTagName(), imageName());
-
-			/** tag image devices */
-			for (final BlockDeviceMapping blockDevice : image
-					.getBlockDeviceMappings()) {
-
-				final EbsBlockDevice elasticDevice = blockDevice.getEbs();
-
-				if (elasticDevice == null) {
-					continue;
-				}
+			/** tag image and image devices */
+			compute.imageTagCreate(image, amazonTagName(), imageName());
 
-				final String snapshotId = elasticDevice.getSnapshotId();
-
-				if (snapshotId == null) {
-					continue;
-				}
-
-				compute.tagCreate(snapshotId, amazonTagName(), imageName());
+			getLog().info("image create image=\n" + image);
 
+			if (!imageCopyRegions.isEmpty()) {
+				copyImage(compute, imageId);
 			}
 
-			getLog().info("image create image=\n" + image);
-
 			getLog().info("image create done [" + imageName() + "]");
 
 		} catch (final Exception e) {
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ecc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.amazonaws.services.ec2.model.Image;
+import com.carrotgarden.maven.aws.ecc.CarrotElasticCompute.ImageState;
+
+/**
+ * create many new ami images from existing AWS ElasticCompute instances
+ * ({@link #imageDefinitions});
+ * 
+ * all image create requests are issued up front and tracked together, so
+ * total time is the time of the slowest image;
+ * 
+ * @goal elastic-compute-image-create-batch
+ * 
+ * @phase prepare-package
+ * 
+ * @inheritByDefault true
+ * 
+ * @requiresDependencyResolution test
+ * 
+ */
+public class ElastiCompImageCreateBatch extends ElastiComp {
+
+	/**
+	 * list of instance / image pairs
+	 * 
+	 * @required
+	 * @parameter
+	 */
+	private List<ImageDefinition> imageDefinitions = new ArrayList<ImageDefinition>();
+
+	/**
+	 * name of project.property which will contain list of {@link Image}
+	 * instances, in definition order, after execution of this maven goal
+	 * 
+	 * @required
+	 * @parameter default-value="amazonImageList"
+	 */
+	private String imageResultProperty;
+
+	/**
+	 * format of project.property name which will contain image id after this
+	 * execution; argument is image name
+	 * 
+	 * @required
+	 * @parameter default-value="amazonImageId.%s"
+	 */
+	private String imageIdResultFormat;
+
+	/**
+	 * take images of running instances without amazon reboot; file system
+	 * consistency is not guaranteed
+	 * 
+	 * @parameter default-value="false"
+	 */
+	private boolean imageNoReboot;
+
+	@Override
+	public void execute() throws MojoFailureException {
+
+		try {
+
+			getLog().info("image create batch init " + imageDefinitions);
+
+			final CarrotElasticCompute compute = newElasticCompute();
+
+			final List<Image> imageList = compute.imageCreate(
+					imageDefinitions, imageNoReboot);
+
+			final Set<String> failureSet = new TreeSet<String>();
+
+			for (int index = 0; index < imageDefinitions.size(); index++) {
+
+				final ImageDefinition definition = imageDefinitions.get(index);
+				final Image image = imageList.get(index);
+
+				final ImageState state = ImageState.fromValue(image.getState());
+
+				switch (state) {
+				case AVAILABLE:
+					break;
+				default:
+					getLog().error(
+							"image create failed : " + definition + "\n"
+									+ image);
+					failureSet.add(definition.getImageName());
+					continue;
+				}
+
+				final String imageName = definition.getImageName();
+				final String imageId = image.getImageId();
+
+				/** publish result */
+				project().getProperties().put(
+						String.format(imageIdResultFormat, imageName), imageId);
+
+				/** tag image and image devices */
+				compute.imageTagCreate(image, amazonTagName(), imageName);
+
+				getLog().info("image create image=\n" + image);
+
+			}
+
+			project().getProperties().put(imageResultProperty, imageList);
+
+			if (!failureSet.isEmpty()) {
+				throw new IllegalStateException("image create failed : "
+						+ failureSet);
+			}
+
+			getLog().info("image create batch done " + imageDefinitions);
+
+		} catch (final Exception e) {
+
+			throw new MojoFailureException("bada-boom", e);
+
+		}
+
+	}
+
+}
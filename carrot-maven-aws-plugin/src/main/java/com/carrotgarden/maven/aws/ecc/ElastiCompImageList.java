@@ -16,6 +16,7 @@ import java.util.TreeMap;
 
 import org.apache.maven.plugin.MojoFailureException;
 
+import com.amazonaws.services.ec2.model.Filter;
 import com.amazonaws.services.ec2.model.Image;
 
 /**
@@ -67,7 +68,7 @@ public class ElastiCompImageList extends ElastiComp {
 	 * <p>
 	 * 1) find all images matching {@link #imageFilter}
 	 * <p>
-	 * 2) match regex against {@link Image#toString()}
+	 * 2) match regex against image field selected by {@link #imageRegexField}
 	 * 
 	 * @required
 	 * @parameter default-value=".*"
@@ -82,6 +83,38 @@ public class ElastiCompImageList extends ElastiComp {
 	 */
 	private String imageRegexProperty;
 
+	/**
+	 * Image field to match {@link #imageRegex} against; one of:
+	 * 
+	 * <pre>
+	 * toString, imageId, name, description, imageLocation, tag:key
+	 * </pre>
+	 * 
+	 * "toString" matches whole image description, which is slow for large
+	 * result sets.
+	 * 
+	 * @required
+	 * @parameter default-value="toString"
+	 */
+	private String imageRegexField;
+
+	/**
+	 * Image owners to search; account ids, or "self", "amazon"; empty for any
+	 * owner. Restricting owners keeps result set small in regions with many
+	 * public images.
+	 * 
+	 * @parameter
+	 */
+	private List<String> imageOwners = new ArrayList<String>();
+
+	/**
+	 * Structured server side filters, applied in addition to
+	 * {@link #imageFilter}; see {@link ImageFilter}.
+	 * 
+	 * @parameter
+	 */
+	private List<ImageFilter> imageFilters = new ArrayList<ImageFilter>();
+
 	/**
 	 * Image filter entries separator.
 	 * 
@@ -191,7 +224,9 @@ public class ElastiCompImageList extends ElastiComp {
 
 		try {
 
-			final String signature = imageFilter() + " / " + imageRegex();
+			final String signature = imageOwners + " / " + imageFilter()
+					+ " / " + imageFilters + " / " + imageRegexField + "="
+					+ imageRegex();
 
 			getLog().info("image list region : " + amazonRegion());
 			getLog().info("image list init : " + signature);
@@ -199,14 +234,24 @@ public class ElastiCompImageList extends ElastiComp {
 			final CarrotElasticCompute compute = newElasticCompute();
 
 			/** obtain result */
-			final List<Image> imageList = compute.imageList( //
+			final List<Filter> filterList = CarrotElasticCompute.filterList( //
 					imageFilter(), //
-					imageRegex(), //
 					imageFilterSplitEntry, //
 					imageFilterSplitKey, //
 					imageFilterSplitValue //
 					);
 
+			for (final ImageFilter filter : imageFilters) {
+				filterList.add(filter.toFilter());
+			}
+
+			final List<Image> imageList = compute.imageList( //
+					imageOwners, //
+					filterList, //
+					imageRegex(), //
+					imageRegexField //
+					);
+
 			for (final Image image : imageList) {
 				getLog().info("image list item : " + image);
 			}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ecc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.Image;
+import com.amazonaws.services.ec2.model.Snapshot;
+
+/**
+ * delete old AMI images and their EBS snapshots, keeping the newest
+ * {@link #imageKeepCount} images of each group;
+ * 
+ * candidate images are found by {@link #imageOwners}, {@link #imageFilters}
+ * and {@link #imageRegex}, then grouped by value of {@link #imageGroupField};
+ * image age is taken from its EBS snapshot start time;
+ * 
+ * images are deleted concurrently ({@link #imagePruneParallelism});
+ * 
+ * @goal elastic-compute-image-prune
+ * 
+ * @phase prepare-package
+ * 
+ * @inheritByDefault true
+ * 
+ * @requiresDependencyResolution test
+ * 
+ */
+public class ElastiCompImagePrune extends ElastiComp {
+
+	/**
+	 * image owners to search; account ids, or "self"
+	 * 
+	 * @parameter
+	 */
+	private List<String> imageOwners = new ArrayList<String>();
+	{
+		imageOwners.add("self");
+	}
+
+	/**
+	 * server side filters; see {@link ImageFilter}
+	 * 
+	 * @parameter
+	 */
+	private List<ImageFilter> imageFilters = new ArrayList<ImageFilter>();
+
+	/**
+	 * image search regex, matched against {@link #imageRegexField}; either
+	 * this regex or {@link #imageFilters} must be set, so that pruning never
+	 * applies to all images of the owners by default
+	 * 
+	 * @parameter
+	 */
+	private String imageRegex;
+
+	/**
+	 * image field to match {@link #imageRegex} against; see
+	 * {@link ElastiCompImageList}
+	 * 
+	 * @required
+	 * @parameter default-value="name"
+	 */
+	private String imageRegexField;
+
+	/**
+	 * image field which defines retention group, such as "tag:Name"; images
+	 * without this field are never pruned
+	 * 
+	 * @required
+	 * @parameter default-value="tag:Name"
+	 */
+	private String imageGroupField;
+
+	/**
+	 * number of newest images to keep in each group; at least 1
+	 * 
+	 * @required
+	 * @parameter default-value="5"
+	 */
+	private int imageKeepCount;
+
+	/**
+	 * maximum number of image delete operations in flight at the same time
+	 * 
+	 * @parameter default-value="4"
+	 */
+	private int imagePruneParallelism;
+
+	/**
+	 * only report images which would be deleted
+	 * 
+	 * @parameter default-value="false"
+	 */
+	private boolean imagePruneDryRun;
+
+	/**
+	 * name of project.property which will contain list of deleted
+	 * {@link Image} instances after execution of this maven goal
+	 * 
+	 * @required
+	 * @parameter default-value="amazonImagePruneList"
+	 */
+	private String imagePruneResultProperty;
+
+	@Override
+	public void execute() throws MojoFailureException {
+
+		try {
+
+			getLog().info("image prune init : " + imageGroupField + " keep="
+					+ imageKeepCount);
+
+			if (imageKeepCount < 1) {
+				throw new IllegalArgumentException(
+						"imageKeepCount must be >= 1 : " + imageKeepCount);
+			}
+
+			final boolean hasRegex = imageRegex != null
+					&& imageRegex.trim().length() > 0;
+
+			if (!hasRegex && imageFilters.isEmpty()) {
+				throw new IllegalArgumentException(
+						"imageRegex or imageFilters must be set");
+			}
+
+			final String regex = hasRegex ? imageRegex : ".*";
+
+			final CarrotElasticCompute compute = newElasticCompute();
+
+			final List<Filter> filterList = new ArrayList<Filter>();
+			for (final ImageFilter filter : imageFilters) {
+				filterList.add(filter.toFilter());
+			}
+
+			final List<Image> imageList = compute.imageList(imageOwners,
+					filterList, regex, imageRegexField);
+
+			final Map<String, Snapshot> snapshotMap = compute
+					.findSnapshots(imageList);
+
+			final List<Image> pruneList = CarrotElasticCompute.imagePruneList(
+					imageList, snapshotMap, imageGroupField, imageKeepCount);
+
+			long pruneSize = 0;
+
+			for (final Image image : pruneList) {
+
+				final long size = CarrotElasticCompute.imageSize(image,
+						snapshotMap);
+
+				pruneSize += size;
+
+				getLog().info(
+						"image prune item : " + image.getImageId() + " / "
+								+ image.getName() + " / "
+								+ CarrotElasticCompute.imageTime(image,
+										snapshotMap) + " / " + size
+								+ " volume GiB");
+
+			}
+
+			getLog().info(
+					"image prune found : " + pruneList.size() + " of "
+							+ imageList.size() + " images, " + pruneSize
+							+ " volume GiB");
+
+			project().getProperties().put(imagePruneResultProperty, pruneList);
+
+			if (imagePruneDryRun) {
+				getLog().info("image prune mode : dry run");
+				return;
+			}
+
+			final Set<String> failureSet = compute.imageDelete(pruneList,
+					imagePruneParallelism);
+
+			if (!failureSet.isEmpty()) {
+				throw new IllegalStateException("image prune failed : "
+						+ failureSet);
+			}
+
+			getLog().info(
+					"image prune done : " + pruneList.size() + " images, "
+							+ pruneSize + " volume GiB");
+
+		} catch (final Exception e) {
+
+			throw new MojoFailureException("bada-boom", e);
+
+		}
+
+	}
+
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ecc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * base for elastic compute goals which operate on instance fleets
+ */
+public abstract class ElastiCompInstance extends ElastiComp {
+
+	/**
+	 * AWS ElasticCompute existing instance ids
+	 * 
+	 * @parameter
+	 */
+	private List<String> instanceIds = new ArrayList<String>();
+
+	/**
+	 * name of project.property which, if set dynamically, contains comma
+	 * separated instance ids to use in addition to {@link #instanceIds}
+	 * 
+	 * @parameter
+	 */
+	private String instanceIdsProperty;
+
+	protected Set<String> instanceIds() {
+
+		final Set<String> idSet = new LinkedHashSet<String>();
+
+		if (instanceIds != null) {
+			idSet.addAll(instanceIds);
+		}
+
+		if (instanceIdsProperty != null) {
+			final String text = (String) project().getProperties().get(
+					instanceIdsProperty);
+			if (text != null) {
+				for (final String entry : text.split(",")) {
+					if (entry.trim().length() > 0) {
+						idSet.add(entry.trim());
+					}
+				}
+			}
+		}
+
+		if (idSet.isEmpty()) {
+			throw new IllegalArgumentException("missing instance ids");
+		}
+
+		return idSet;
+
+	}
+
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ecc;
+
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * start many AWS ElasticCompute instances with one request, and wait until all
+ * of them are running
+ * 
+ * @goal elastic-compute-instance-start
+ * 
+ * @phase prepare-package
+ * 
+ * @inheritByDefault true
+ * 
+ * @requiresDependencyResolution test
+ * 
+ */
+public class ElastiCompInstanceStart extends ElastiCompInstance {
+
+	@Override
+	public void execute() throws MojoFailureException {
+
+		try {
+
+			final Set<String> idSet = instanceIds();
+
+			getLog().info("instance start init " + idSet);
+
+			final CarrotElasticCompute compute = newElasticCompute();
+
+			compute.instanceStart(idSet);
+
+			getLog().info("instance start done " + idSet);
+
+		} catch (final Exception e) {
+
+			throw new MojoFailureException("bada-boom", e);
+
+		}
+
+	}
+
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ecc;
+
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * stop many AWS ElasticCompute instances with one request, and wait until all
+ * of them are stopped
+ * 
+ * @goal elastic-compute-instance-stop
+ * 
+ * @phase prepare-package
+ * 
+ * @inheritByDefault true
+ * 
+ * @requiresDependencyResolution test
+ * 
+ */
+public class ElastiCompInstanceStop extends ElastiCompInstance {
+
+	@Override
+	public void execute() throws MojoFailureException {
+
+		try {
+
+			final Set<String> idSet = instanceIds();
+
+			getLog().info("instance stop init " + idSet);
+
+			final CarrotElasticCompute compute = newElasticCompute();
+
+			compute.instanceStop(idSet);
+
+			getLog().info("instance stop done " + idSet);
+
+		} catch (final Exception e) {
+
+			throw new MojoFailureException("bada-boom", e);
+
+		}
+
+	}
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ecc;
+
+/**
+ * single image entry of a batch image goal; configured in pom.xml as follows:
+ * 
+ * <pre>
+ * &lt;imageDefinition&gt;
+ *   &lt;instanceId&gt;i-12345678&lt;/instanceId&gt;
+ *   &lt;imageName&gt;role-server-1.0.0&lt;/imageName&gt;
+ *   &lt;imageDescription&gt;role server&lt;/imageDescription&gt;
+ * &lt;/imageDefinition&gt;
+ * </pre>
+ */
+public class ImageDefinition {
+
+	/** AWS ElasticCompute existing instance id to create image from */
+	private String instanceId;
+
+	/** AWS ElasticCompute AMI image name; must be unique */
+	private String imageName;
+
+	/** AWS ElasticCompute AMI image description; optional */
+	private String imageDescription;
+
+	public ImageDefinition() {
+	}
+
+	public ImageDefinition(final String instanceId, final String imageName,
+			final String imageDescription) {
+		this.instanceId = instanceId;
+		this.imageName = imageName;
+		this.imageDescription = imageDescription;
+	}
+
+	public String getInstanceId() {
+		return instanceId;
+	}
+
+	public String getImageName() {
+		return imageName;
+	}
+
+	public String getImageDescription() {
+		if (imageDescription == null) {
+			return imageName;
+		}
+		return imageDescription;
+	}
+
+	@Override
+	public String toString() {
+		return imageName + "@" + instanceId;
+	}
+
+}
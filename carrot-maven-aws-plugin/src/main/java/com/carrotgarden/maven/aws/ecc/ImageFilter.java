@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ecc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.services.ec2.model.Filter;
+
+/**
+ * single server side image filter; configured in pom.xml as follows:
+ * 
+ * <pre>
+ * &lt;imageFilter&gt;
+ *   &lt;name&gt;tag:Name&lt;/name&gt;
+ *   &lt;values&gt;
+ *     &lt;value&gt;role-server-*&lt;/value&gt;
+ *   &lt;/values&gt;
+ * &lt;/imageFilter&gt;
+ * </pre>
+ */
+public class ImageFilter {
+
+	/** DescribeImages filter name, such as "name", "state" or "tag:Name" */
+	private String name;
+
+	/** filter values, any of which can match; wildcards are allowed */
+	private List<String> values = new ArrayList<String>();
+
+	public String getName() {
+		return name;
+	}
+
+	public List<String> getValues() {
+		if (values == null) {
+			values = new ArrayList<String>();
+		}
+		return values;
+	}
+
+	public Filter toFilter() {
+		return new Filter(name, getValues());
+	}
+
+	@Override
+	public String toString() {
+		return name + "=" + values;
+	}
+
+}
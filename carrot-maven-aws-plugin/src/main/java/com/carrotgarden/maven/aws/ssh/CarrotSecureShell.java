@@ -7,12 +7,29 @@
  */
 package com.carrotgarden.maven.aws.ssh;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
 
 import org.slf4j.Logger;
 
@@ -20,7 +37,9 @@ import com.carrotgarden.maven.aws.ssh.PathMaker.Entry;
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
 import com.jcraft.jsch.SftpProgressMonitor;
 
 /**
@@ -65,8 +84,87 @@ public class CarrotSecureShell {
 
 	}
 
+	/** keep alive probe interval, milliseconds */
+	private static final int SERVER_ALIVE_INTERVAL = 30 * 1000;
+
+	/** keep alive probes without reply before disconnect */
+	private static final int SERVER_ALIVE_COUNT = 3;
+
+	/** operation which runs on a pooled session */
+	private static interface SessionTask<T> {
+
+		T run(Session session) throws Exception;
+
+	}
+
+	private String sessionKey() {
+		return SessionPool.key(user, host, port, keyFile.getAbsolutePath());
+	}
+
+	/**
+	 * @return true when failure is caused by broken connection, rather than
+	 *         by remote command or remote file system
+	 */
+	static boolean isSessionFailure(final Throwable error) {
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof JSchException) {
+				return true;
+			}
+			if (cause instanceof SftpException) {
+				final int id = ((SftpException) cause).id;
+				if (id == ChannelSftp.SSH_FX_CONNECTION_LOST
+						|| id == ChannelSftp.SSH_FX_NO_CONNECTION) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * run task on pooled session; when session turns out to be broken, drop
+	 * it from the pool and run task once more on a new session
+	 */
+	private <T> T withSession(final SessionTask<T> task) throws Exception {
+
+		final Session session = newSession();
+
+		try {
+
+			return task.run(session);
+
+		} catch (final Exception e) {
+
+			if (session.isConnected() && !isSessionFailure(e)) {
+				throw e;
+			}
+
+			logger.warn("session failure, retry on new session : " + e);
+
+			SessionPool.discard(sessionKey(), session);
+
+			return task.run(newSession());
+
+		}
+
+	}
+
+	/** pooled session; connects on first use */
 	private Session newSession() throws Exception {
 
+		final String key = sessionKey();
+
+		return SessionPool.acquire(key, new SessionPool.Factory() {
+			@Override
+			public Session create() throws Exception {
+				return connectSession();
+			}
+		});
+
+	}
+
+	private Session connectSession() throws Exception {
+
 		logger.debug("exec getSession: on " + host + " : " + port + " user "
 				+ user);
 
@@ -78,6 +176,12 @@ public class CarrotSecureShell {
 
 		session.setConfig("StrictHostKeyChecking", "no");
 
+		/** do not keep maven from exiting */
+		session.setDaemonThread(true);
+
+		session.setServerAliveInterval(SERVER_ALIVE_INTERVAL);
+		session.setServerAliveCountMax(SERVER_ALIVE_COUNT);
+
 		sessionConnectWithRetry(session);
 
 		return session;
@@ -121,21 +225,44 @@ public class CarrotSecureShell {
 	}
 
 	public int execute(final String command) throws Exception {
+		return execute(command, ">>> ");
+	}
+
+	/**
+	 * @param prefix
+	 *            prepended to each line of remote output
+	 */
+	public int execute(final String command, final String prefix)
+			throws Exception {
 
 		logger.info("exec user   : " + user);
 		logger.info("exec host   : " + host);
 		logger.info("exec port   : " + port);
 		logger.info("exec command: " + command);
 
-		final Session session = newSession();
+		/** command is not repeated once started, only channel open is */
+		final ChannelExec channel = withSession(new SessionTask<ChannelExec>() {
+			@Override
+			public ChannelExec run(final Session session) throws Exception {
 
-		final ChannelExec channel = (ChannelExec) session.openChannel("exec");
+				final ChannelExec exec = (ChannelExec) session
+						.openChannel("exec");
 
-		channel.setCommand(command);
+				exec.setCommand(command);
 
-		channel.setPty(true);
+				exec.setPty(true);
 
-		channel.connect();
+				try {
+					exec.connect();
+				} catch (final Exception e) {
+					exec.disconnect();
+					throw e;
+				}
+
+				return exec;
+
+			}
+		});
 
 		//
 
@@ -153,7 +280,7 @@ public class CarrotSecureShell {
 				break;
 			}
 
-			logger.info(">>> " + line);
+			logger.info(prefix + line);
 
 		}
 
@@ -163,6 +290,13 @@ public class CarrotSecureShell {
 
 		//
 
+		return exitStatus(channel);
+
+	}
+
+	/** wait for remote command to exit, then release channel */
+	private int exitStatus(final ChannelExec channel) throws Exception {
+
 		int count = 50;
 		final int delay = 100;
 
@@ -184,8 +318,6 @@ public class CarrotSecureShell {
 
 		channel.disconnect();
 
-		session.disconnect();
-
 		return status;
 
 	}
@@ -198,8 +330,15 @@ public class CarrotSecureShell {
 		}
 	}
 
+	/**
+	 * ensure remote folder and its parents exist; folders already in the
+	 * ensured set cost nothing, others cost one stat and maybe one mkdir
+	 * 
+	 * @param ensuredSet
+	 *            absolute remote folders known to exist; updated
+	 */
 	private void ensureTargetFolder(final ChannelSftp channel,
-			final String folder) throws Exception {
+			final String folder, final Set<String> ensuredSet) throws Exception {
 
 		logger.debug("sftp ensure: " + folder);
 
@@ -217,12 +356,15 @@ public class CarrotSecureShell {
 				continue;
 			}
 
-			/** absolute */
-			channel.cd(root);
-
 			/** absolute */
 			final String next = makePath(root, path);
 
+			root = next;
+
+			if (ensuredSet.contains(next)) {
+				continue;
+			}
+
 			boolean isPresent = false;
 
 			try {
@@ -235,36 +377,83 @@ public class CarrotSecureShell {
 			if (isPresent) {
 				logger.debug("sftp present: " + next);
 			} else {
-				/** relative to root */
-				logger.debug("sftp creating: " + next + " path " + path);
-				channel.mkdir(path);
+				logger.debug("sftp creating: " + next);
+				try {
+					channel.mkdir(next);
+				} catch (final SftpException e) {
+					/** concurrent channel could create it first */
+					channel.stat(next);
+				}
 				logger.debug("sftp created: " + next);
 			}
 
-			root = next;
+			ensuredSet.add(next);
 
 		}
 
 	}
 
-	public int publish(final String source, final String target)
-			throws Exception {
+	/** @return remote parent folder of a remote file */
+	static String parentFolder(final String file) {
+		final int index = file.lastIndexOf("/");
+		return index <= 0 ? "/" : file.substring(0, index);
+	}
 
-		logger.info("sftp user  : " + user);
-		logger.info("sftp host  : " + host);
-		logger.info("sftp port  : " + port);
-		logger.info("sftp source: " + source);
-		logger.info("sftp target: " + target);
+	/**
+	 * @return target folder and all remote entry folders, parents sorted
+	 *         before children
+	 */
+	static Set<String> folderSet(final String target,
+			final List<Entry> entryList) {
+		final Set<String> folderSet = new TreeSet<String>();
+		folderSet.add(target);
+		for (final Entry entry : entryList) {
+			folderSet.add(parentFolder(entry.target));
+		}
+		return folderSet;
+	}
 
-		final Session session = newSession();
+	/**
+	 * create all remote folders once, before file transfer starts
+	 */
+	private void ensureTargetFolders(final Session session,
+			final Set<String> folderSet) throws Exception {
 
 		final ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
 
 		channel.connect();
 
-		//
+		try {
 
-		final SftpProgressMonitor monitor = new SftpProgressMonitor() {
+			final Set<String> ensuredSet = new HashSet<String>();
+
+			for (final String folder : folderSet) {
+				ensureTargetFolder(channel, folder, ensuredSet);
+			}
+
+			logger.info("sftp folders : " + folderSet.size() + " ensured");
+
+		} finally {
+
+			channel.disconnect();
+
+		}
+
+	}
+
+	public int publish(final String source, final String target)
+			throws Exception {
+		return publish(source, target, 1);
+	}
+
+	public int publish(final String source, final String target,
+			final int channelCount) throws Exception {
+		return publish(source, target, channelCount, PublishMode.OVERWRITE,
+				false);
+	}
+
+	private SftpProgressMonitor newUploadMonitor() {
+		return new SftpProgressMonitor() {
 
 			@Override
 			public void init(final int op, final String source,
@@ -284,55 +473,423 @@ public class CarrotSecureShell {
 			}
 
 		};
+	}
 
-		final PathMaker maker = new PathMaker(logger, source, target);
+	/** largest files first, so that small files fill in at the end */
+	static void sortBySizeDescending(final List<Entry> entryList) {
+		Collections.sort(entryList, new Comparator<Entry>() {
+			@Override
+			public int compare(final Entry one, final Entry two) {
+				final long sizeOne = new File(one.source).length();
+				final long sizeTwo = new File(two.source).length();
+				return sizeOne < sizeTwo ? 1 : (sizeOne > sizeTwo ? -1 : 0);
+			}
+		});
+	}
 
-		final List<Entry> entryList = maker.getEntryList();
+	/** collapse repeated separators, so remote paths compare as equal */
+	static String normalPath(final String path) {
+		return path.replaceAll("/+", "/");
+	}
 
-		ensureTargetFolder(channel, target);
+	/** @return true when local file differs from remote by size or mtime */
+	static boolean isChanged(final File local, final PathLister.Remote remote) {
+		if (remote == null) {
+			return true;
+		}
+		if (local.length() != remote.size) {
+			return true;
+		}
+		return local.lastModified() / 1000 != remote.mtime;
+	}
 
+	/** @return entries which are missing or different on remote side */
+	static List<Entry> deltaList(final List<Entry> entryList,
+			final Map<String, PathLister.Remote> remoteMap) {
+		final List<Entry> deltaList = new ArrayList<Entry>();
 		for (final Entry entry : entryList) {
+			final PathLister.Remote remote = remoteMap
+					.get(normalPath(entry.target));
+			if (isChanged(new File(entry.source), remote)) {
+				deltaList.add(entry);
+			}
+		}
+		return deltaList;
+	}
 
-			final String file = entry.target;
-			final int index = file.lastIndexOf("/");
-			final String folder = file.substring(0, index);
+	/** @return remote files which have no local source */
+	static List<String> orphanList(final List<Entry> entryList,
+			final Map<String, PathLister.Remote> remoteMap) {
+		final Set<String> targetSet = new HashSet<String>();
+		for (final Entry entry : entryList) {
+			targetSet.add(normalPath(entry.target));
+		}
+		final List<String> orphanList = new ArrayList<String>();
+		for (final String path : remoteMap.keySet()) {
+			if (!targetSet.contains(normalPath(path))) {
+				orphanList.add(path);
+			}
+		}
+		return orphanList;
+	}
 
-			ensureTargetFolder(channel, folder);
+	/**
+	 * list remote tree once, optionally delete remote orphans
+	 * 
+	 * @return entries which must be uploaded
+	 */
+	private List<Entry> syncPlan(final Session session, final String target,
+			final List<Entry> entryList, final boolean deleteOrphans)
+			throws Exception {
 
-			channel.put(entry.source, entry.target, monitor,
-					ChannelSftp.OVERWRITE);
+		final ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
 
-		}
+		channel.connect();
 
-		//
+		try {
 
-		channel.disconnect();
+			final Map<String, PathLister.Remote> remoteMap = new PathLister(
+					logger).listFolder(channel, target);
 
-		final int status = channel.getExitStatus();
+			final List<Entry> deltaList = deltaList(entryList, remoteMap);
 
-		session.disconnect();
+			logger.info("sftp sync  : " + deltaList.size() + " of "
+					+ entryList.size() + " files changed");
 
-		logger.info("sftp exit status: " + status);
+			final List<String> orphanList = orphanList(entryList, remoteMap);
 
-		return status;
+			if (deleteOrphans) {
+				for (final String path : orphanList) {
+					logger.info("sftp delete: " + path);
+					channel.rm(path);
+				}
+			} else if (!orphanList.isEmpty()) {
+				logger.info("sftp sync  : " + orphanList.size()
+						+ " remote orphans kept");
+			}
+
+			return deltaList;
+
+		} finally {
+
+			channel.disconnect();
+
+		}
 
 	}
 
-	public int retrieve(final String source, final String target)
-			throws Exception {
+	/**
+	 * upload folder tree
+	 * 
+	 * @param channelCount
+	 *            number of concurrent sftp channels
+	 * @param mode
+	 *            upload every file, only changed files, or a tar stream
+	 * @param deleteOrphans
+	 *            in sync mode, delete remote files without local source
+	 */
+	public int publish(final String source, final String target,
+			final int channelCount, final PublishMode mode,
+			final boolean deleteOrphans) throws Exception {
 
 		logger.info("sftp user  : " + user);
 		logger.info("sftp host  : " + host);
 		logger.info("sftp port  : " + port);
 		logger.info("sftp source: " + source);
 		logger.info("sftp target: " + target);
+		logger.info("sftp mode  : " + mode);
 
-		final Session session = newSession();
+		final PathMaker maker = new PathMaker(logger, source, target);
 
-		final ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+		final List<Entry> entryList = maker.getEntryList();
+
+		/** every mode is safe to repeat on a new session */
+		return withSession(new SessionTask<Integer>() {
+			@Override
+			public Integer run(final Session session) throws Exception {
+				switch (mode) {
+				case TAR:
+					return publishTar(session, target, entryList);
+				case SYNC:
+					return publishEntries(session, target,
+							syncPlan(session, target, entryList,
+									deleteOrphans), channelCount, true);
+				default:
+					return publishEntries(session, target, entryList,
+							channelCount, false);
+				}
+			}
+		});
+
+	}
+
+	/** single quoted for remote shell */
+	static String shellQuote(final String text) {
+		return "'" + text.replace("'", "'\\''") + "'";
+	}
+
+	/** @return entry path relative to target folder */
+	static String tarName(final String target, final String file) {
+		final String root = normalPath(target + "/");
+		final String path = normalPath(file);
+		if (!path.startsWith(root)) {
+			throw new IllegalArgumentException("path outside target : "
+					+ file);
+		}
+		return path.substring(root.length());
+	}
+
+	/**
+	 * stream gzip tar of the entries into remote tar over one exec channel;
+	 * archive is produced on the fly, no temporary file on either side
+	 */
+	private int publishTar(final Session session, final String target,
+			final List<Entry> entryList) throws Exception {
+
+		final String folder = shellQuote(target);
+
+		final String command = "mkdir -p " + folder + " && tar -xzf - -C "
+				+ folder;
+
+		logger.info("exec command: " + command);
+		logger.info("tar files  : " + entryList.size());
+
+		final ChannelExec channel = (ChannelExec) session.openChannel("exec");
+
+		channel.setCommand(command);
+
+		final InputStream input = channel.getInputStream();
+		final InputStream error = channel.getErrStream();
+
+		final OutputStream output = channel.getOutputStream();
 
 		channel.connect();
 
+		/** consume remote output while writing, else remote tar blocks */
+		final Thread inputDrain = drainRemote(input);
+		final Thread errorDrain = drainRemote(error);
+
+		try {
+
+			final GZIPOutputStream zipper = new GZIPOutputStream(
+					new BufferedOutputStream(output, 64 * 1024), 64 * 1024);
+
+			final TarStream tar = new TarStream(zipper);
+
+			try {
+
+				for (final Entry entry : entryList) {
+					logger.debug("tar entry: " + entry.target);
+					tar.putFile(new File(entry.source),
+							tarName(target, entry.target));
+				}
+
+				tar.finish();
+
+			} finally {
+
+				/** remote end of input */
+				zipper.close();
+
+			}
+
+			inputDrain.join();
+			errorDrain.join();
+
+			return exitStatus(channel);
+
+		} finally {
+
+			/** no-op when already released */
+			channel.disconnect();
+
+		}
+
+	}
+
+	/** log remote output on a separate thread until end of stream */
+	private Thread drainRemote(final InputStream input) {
+
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					logRemote(input);
+				} catch (final Exception e) {
+					logger.debug("exec output failure", e);
+				}
+			}
+		}, "ssh-drain");
+
+		thread.setDaemon(true);
+		thread.start();
+
+		return thread;
+
+	}
+
+	private void logRemote(final InputStream input) throws Exception {
+
+		final BufferedReader buffered = new BufferedReader(
+				new InputStreamReader(input));
+
+		while (true) {
+
+			final String line = buffered.readLine();
+
+			if (line == null) {
+				break;
+			}
+
+			logger.info(">>> " + line);
+
+		}
+
+		input.close();
+
+	}
+
+	/**
+	 * upload entries over several concurrent sftp channels of one session;
+	 * each channel takes the next largest remaining file
+	 * 
+	 * @param preserveTime
+	 *            set remote mtime from local file
+	 */
+	private int publishEntries(final Session session, final String target,
+			final List<Entry> entryList, final int channelCount,
+			final boolean preserveTime) throws Exception {
+
+		final SftpProgressMonitor monitor = newUploadMonitor();
+
+		sortBySizeDescending(entryList);
+
+		ensureTargetFolders(session, folderSet(target, entryList));
+
+		final Queue<Entry> entryQueue = new ConcurrentLinkedQueue<Entry>(
+				entryList);
+
+		final int count = Math.max(1, Math.min(channelCount,
+				entryList.size()));
+
+		logger.info("sftp files : " + entryList.size() + " channels : "
+				+ count);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(count);
+
+		try {
+
+			final List<Future<Integer>> futureList = new ArrayList<Future<Integer>>();
+
+			for (int index = 0; index < count; index++) {
+				futureList.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						return publishWorker(session, entryQueue, monitor,
+								preserveTime);
+					}
+				}));
+			}
+
+			Integer status = null;
+
+			for (final Future<Integer> future : futureList) {
+				try {
+					final int result = future.get();
+					if (status == null || status == 0) {
+						status = result;
+					}
+				} catch (final ExecutionException e) {
+					throw new IllegalStateException("sftp upload failed",
+							e.getCause());
+				}
+			}
+
+			logger.info("sftp exit status: " + status);
+
+			return status;
+
+		} finally {
+
+			executor.shutdownNow();
+
+		}
+
+	}
+
+	/**
+	 * upload entries from shared queue until it is empty; remote folders must
+	 * exist; on failure, stop other workers by draining the queue
+	 * 
+	 * @return 0 when queue is drained without error; sftp channels carry no
+	 *         exit status
+	 */
+	private int publishWorker(final Session session,
+			final Queue<Entry> entryQueue, final SftpProgressMonitor monitor,
+			final boolean preserveTime) throws Exception {
+
+		final ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+
+		try {
+
+			channel.connect();
+
+			while (true) {
+
+				final Entry entry = entryQueue.poll();
+
+				if (entry == null) {
+					break;
+				}
+
+				channel.put(entry.source, entry.target, monitor,
+						ChannelSftp.OVERWRITE);
+
+				if (preserveTime) {
+					final long time = new File(entry.source).lastModified();
+					channel.setMtime(entry.target, (int) (time / 1000));
+				}
+
+			}
+
+		} catch (final Exception e) {
+
+			/** stop other channels */
+			entryQueue.clear();
+
+			throw e;
+
+		} finally {
+
+			channel.disconnect();
+
+		}
+
+		return 0;
+
+	}
+
+	public int retrieve(final String source, final String target)
+			throws Exception {
+		return retrieve(source, target, 1);
+	}
+
+	/**
+	 * download folder tree over several concurrent sftp channels; files which
+	 * match remote size and mtime are skipped, partial files are resumed
+	 * 
+	 * @param channelCount
+	 *            number of concurrent sftp channels
+	 */
+	public int retrieve(final String source, final String target,
+			final int channelCount) throws Exception {
+
+		logger.info("sftp user  : " + user);
+		logger.info("sftp host  : " + host);
+		logger.info("sftp port  : " + port);
+		logger.info("sftp source: " + source);
+		logger.info("sftp target: " + target);
+
 		final SftpProgressMonitor monitor = new SftpProgressMonitor() {
 
 			@Override
@@ -358,16 +915,17 @@ public class CarrotSecureShell {
 
 		final PathFetcher fetcher = new PathFetcher(logger);
 
-		fetcher.fetchFolder(channel, source, target, monitor);
+		/** resumable, safe to repeat on a new session */
+		final int status = withSession(new SessionTask<Integer>() {
+			@Override
+			public Integer run(final Session session) throws Exception {
+				return fetcher.fetchFolder(session, source, new File(target),
+						monitor, channelCount);
+			}
+		});
 
 		//
 
-		channel.disconnect();
-
-		final int status = channel.getExitStatus();
-
-		session.disconnect();
-
 		logger.info("sftp exit status: " + status);
 
 		return status;
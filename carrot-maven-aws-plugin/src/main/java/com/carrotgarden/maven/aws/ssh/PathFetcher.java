@@ -1,15 +1,45 @@
 package com.carrotgarden.maven.aws.ssh;
 
 import java.io.File;
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 
 import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.Session;
 import com.jcraft.jsch.SftpProgressMonitor;
 
+/**
+ * download remote folder tree: list remote tree once, then download over
+ * several concurrent sftp channels of one session
+ */
 public class PathFetcher {
 
+	/** remote file and its local copy */
+	static class Fetch {
+
+		final PathLister.Remote remote;
+
+		final File local;
+
+		Fetch(final PathLister.Remote remote, final File local) {
+			this.remote = remote;
+			this.local = local;
+		}
+
+	}
+
 	private final Logger logger;
 
 	public PathFetcher(final Logger logger) {
@@ -18,69 +48,209 @@ public class PathFetcher {
 
 	}
 
-	public void fetchFolder( //
-			final ChannelSftp channel, //
-			final String remoteFolder, //
-			final String localFolder, //
-			final SftpProgressMonitor monitor //
-	) throws Exception {
+	/** @return true when local copy matches remote size and mtime */
+	static boolean isCurrent(final File local, final PathLister.Remote remote) {
+		return local.isFile() && local.length() == remote.size
+				&& local.lastModified() / 1000 == remote.mtime;
+	}
 
-		final String source = remoteFolder;
-		final File target = new File(localFolder);
+	/**
+	 * local copy which is shorter than remote and was written after remote
+	 * was last modified is taken as an interrupted download and is resumed;
+	 * complete downloads carry remote mtime, so older copies are downloaded
+	 * again
+	 */
+	static int transferMode(final File local, final PathLister.Remote remote) {
+		final long size = local.isFile() ? local.length() : 0;
+		if (size > 0 && size < remote.size
+				&& local.lastModified() / 1000 > remote.mtime) {
+			return ChannelSftp.RESUME;
+		} else {
+			return ChannelSftp.OVERWRITE;
+		}
+	}
 
-		fetchFolder(channel, source, target, monitor);
+	/** @return local file for remote path under remote folder */
+	static File localFile(final String remoteFolder, final File localFolder,
+			final String remotePath) {
+		final String root = CarrotSecureShell.normalPath(remoteFolder + "/");
+		final String path = CarrotSecureShell.normalPath(remotePath);
+		if (!path.startsWith(root)) {
+			throw new IllegalArgumentException("path outside source : "
+					+ remotePath);
+		}
+		return new File(localFolder, path.substring(root.length()));
+	}
+
+	/**
+	 * @return files which are missing or different locally, largest first
+	 */
+	static List<Fetch> fetchList(final String remoteFolder,
+			final File localFolder,
+			final Map<String, PathLister.Remote> remoteMap) {
+		final List<Fetch> fetchList = new ArrayList<Fetch>();
+		for (final PathLister.Remote remote : remoteMap.values()) {
+			final File local = localFile(remoteFolder, localFolder,
+					remote.path);
+			if (!isCurrent(local, remote)) {
+				fetchList.add(new Fetch(remote, local));
+			}
+		}
+		Collections.sort(fetchList, new Comparator<Fetch>() {
+			@Override
+			public int compare(final Fetch one, final Fetch two) {
+				final long sizeOne = one.remote.size;
+				final long sizeTwo = two.remote.size;
+				return sizeOne < sizeTwo ? 1 : (sizeOne > sizeTwo ? -1 : 0);
+			}
+		});
+		return fetchList;
+	}
+
+	private Map<String, PathLister.Remote> listFolder(final Session session,
+			final String remoteFolder) throws Exception {
+
+		final ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+
+		channel.connect();
+
+		try {
+			return new PathLister(logger).listFolder(channel, remoteFolder);
+		} finally {
+			channel.disconnect();
+		}
 
 	}
 
-	public void fetchFolder( //
-			final ChannelSftp channel, //
+	/**
+	 * @param channelCount
+	 *            number of concurrent sftp channels
+	 */
+	public int fetchFolder( //
+			final Session session, //
 			final String remoteFolder, //
 			final File localFolder, //
-			final SftpProgressMonitor monitor //
+			final SftpProgressMonitor monitor, //
+			final int channelCount //
 	) throws Exception {
 
 		if (!localFolder.exists()) {
 			localFolder.mkdirs();
 		}
 
-		channel.cd(remoteFolder);
+		final Map<String, PathLister.Remote> remoteMap = listFolder(session,
+				remoteFolder);
+
+		final List<Fetch> fetchList = fetchList(remoteFolder, localFolder,
+				remoteMap);
 
-		@SuppressWarnings("unchecked")
-		final Vector<ChannelSftp.LsEntry> remoteList = channel.ls(remoteFolder);
+		final int count = Math.max(1, Math.min(channelCount,
+				fetchList.size()));
 
-		for (int index = 0; index < remoteList.size(); index++) {
+		logger.info("sftp files : " + fetchList.size() + " of "
+				+ remoteMap.size() + " changed; channels : " + count);
 
-			final ChannelSftp.LsEntry remoteEntry = remoteList.elementAt(index);
+		final Queue<Fetch> fetchQueue = new ConcurrentLinkedQueue<Fetch>(
+				fetchList);
 
-			final String remotePath = remoteEntry.getFilename();
+		final ExecutorService executor = Executors.newFixedThreadPool(count);
 
-			if (remoteEntry.getAttrs().isDir()) {
+		try {
 
-				if (remotePath.equals(".") || remotePath.equals("..")) {
-					continue;
+			final List<Future<Integer>> futureList = new ArrayList<Future<Integer>>();
+
+			for (int index = 0; index < count; index++) {
+				futureList.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						return fetchWorker(session, fetchQueue, monitor);
+					}
+				}));
+			}
+
+			Integer status = null;
+
+			for (final Future<Integer> future : futureList) {
+				try {
+					final int result = future.get();
+					if (status == null || status == 0) {
+						status = result;
+					}
+				} catch (final ExecutionException e) {
+					throw new IllegalStateException("sftp download failed",
+							e.getCause());
 				}
+			}
 
-				final String nextRemoteFolder = //
-				channel.pwd() + "/" + remotePath + "/";
+			return status;
 
-				final File nextLocalFolder = new File(localFolder, remotePath);
+		} finally {
 
-				fetchFolder(channel, nextRemoteFolder, nextLocalFolder, monitor);
+			executor.shutdownNow();
 
-			} else {
+		}
+
+	}
 
-				final File localFile = new File(localFolder, remotePath);
+	/**
+	 * download entries from shared queue until it is empty; on failure, stop
+	 * other workers by draining the queue
+	 * 
+	 * @return 0 when queue is drained without error; sftp channels carry no
+	 *         exit status
+	 */
+	private int fetchWorker(final Session session,
+			final Queue<Fetch> fetchQueue, final SftpProgressMonitor monitor)
+			throws Exception {
 
-				final String localPath = localFile.getAbsolutePath();
+		final ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+
+		try {
+
+			channel.connect();
+
+			while (true) {
+
+				final Fetch fetch = fetchQueue.poll();
+
+				if (fetch == null) {
+					break;
+				}
 
-				channel.get(remotePath, localPath, monitor,
-						ChannelSftp.OVERWRITE);
+				final File folder = fetch.local.getParentFile();
+
+				if (!folder.exists()) {
+					folder.mkdirs();
+				}
+
+				final int mode = transferMode(fetch.local, fetch.remote);
+
+				if (mode == ChannelSftp.RESUME) {
+					logger.info("sftp resume: " + fetch.remote.path + " @ "
+							+ fetch.local.length());
+				}
+
+				channel.get(fetch.remote.path, fetch.local.getAbsolutePath(),
+						monitor, mode);
+
+				fetch.local.setLastModified(fetch.remote.mtime * 1000L);
 
 			}
 
+		} catch (final Exception e) {
+
+			/** stop other channels */
+			fetchQueue.clear();
+
+			throw e;
+
+		} finally {
+
+			channel.disconnect();
+
 		}
 
-		channel.cd("..");
+		return 0;
 
 	}
 
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ssh;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.Vector;
+
+import org.slf4j.Logger;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+
+/**
+ * recursive listing of remote folder tree; one sftp ls per remote folder
+ */
+public class PathLister {
+
+	/** remote file attributes */
+	public static class Remote {
+
+		/** absolute remote path */
+		public final String path;
+
+		/** bytes */
+		public final long size;
+
+		/** modification time, seconds */
+		public final int mtime;
+
+		public Remote(final String path, final long size, final int mtime) {
+			this.path = path;
+			this.size = size;
+			this.mtime = mtime;
+		}
+
+		@Override
+		public String toString() {
+			return path + " [" + size + "/" + mtime + "]";
+		}
+
+	}
+
+	private final Logger logger;
+
+	public PathLister(final Logger logger) {
+
+		this.logger = logger;
+
+	}
+
+	/**
+	 * @return normalized path; remote map keys must match normalized publish
+	 *         targets
+	 */
+	static String makePath(final String root, final String base) {
+		return CarrotSecureShell.normalPath(root + "/" + base);
+	}
+
+	/**
+	 * @return absolute remote path -> remote file, for regular files only;
+	 *         empty when remote folder is missing
+	 */
+	public Map<String, Remote> listFolder(final ChannelSftp channel,
+			final String remoteFolder) throws Exception {
+
+		final Map<String, Remote> remoteMap = new TreeMap<String, Remote>();
+
+		try {
+			channel.stat(remoteFolder);
+		} catch (final SftpException e) {
+			if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+				logger.debug("sftp missing: " + remoteFolder);
+				return remoteMap;
+			}
+			throw e;
+		}
+
+		listFolder(channel, remoteFolder, remoteMap);
+
+		logger.debug("sftp listed: " + remoteMap.size() + " files");
+
+		return remoteMap;
+
+	}
+
+	private void listFolder(final ChannelSftp channel,
+			final String remoteFolder, final Map<String, Remote> remoteMap)
+			throws Exception {
+
+		@SuppressWarnings("unchecked")
+		final Vector<ChannelSftp.LsEntry> remoteList = channel.ls(remoteFolder);
+
+		for (final ChannelSftp.LsEntry remoteEntry : remoteList) {
+
+			final String name = remoteEntry.getFilename();
+
+			if (name.equals(".") || name.equals("..")) {
+				continue;
+			}
+
+			final String path = makePath(remoteFolder, name);
+
+			final SftpATTRS attrs = remoteEntry.getAttrs();
+
+			if (attrs.isDir()) {
+				listFolder(channel, path, remoteMap);
+			} else if (attrs.isReg()) {
+				remoteMap.put(path,
+						new Remote(path, attrs.getSize(), attrs.getMTime()));
+			}
+
+		}
+
+	}
+
+}
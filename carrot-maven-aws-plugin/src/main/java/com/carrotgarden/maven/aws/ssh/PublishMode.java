@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ssh;
+
+/**
+ * how ssh publish transfers the local tree
+ */
+public enum PublishMode {
+
+	/** upload every file, replace remote copy */
+	OVERWRITE, //
+
+	/** upload only files which differ from remote by size or mtime */
+	SYNC, //
+
+	/** stream one gzip tar archive into remote tar over single exec channel */
+	TAR, //
+
+	;
+
+	/** case insensitive; null means default */
+	public static PublishMode fromValue(final String value) {
+		if (value == null || value.length() == 0) {
+			return OVERWRITE;
+		}
+		return valueOf(value.trim().toUpperCase());
+	}
+
+}
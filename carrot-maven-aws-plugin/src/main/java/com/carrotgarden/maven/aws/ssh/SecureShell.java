@@ -143,6 +143,12 @@ public abstract class SecureShell extends CarrotMojo {
 	}
 
 	protected CarrotSecureShell newSecureShell() throws Exception {
+		return newSecureShell(sshHost());
+	}
+
+	/** same settings, different host */
+	protected CarrotSecureShell newSecureShell(final String host)
+			throws Exception {
 
 		final Logger logger = getLogger(getClass());
 
@@ -150,7 +156,7 @@ public abstract class SecureShell extends CarrotMojo {
 				logger, //
 				sshKeyFile(), //
 				sshUser(), //
-				sshHost(), //
+				host, //
 				sshPort(), //
 				sshConnectRetries, //
 				sshConnectTimeout //
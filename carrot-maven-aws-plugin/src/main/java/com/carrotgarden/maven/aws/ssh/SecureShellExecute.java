@@ -7,10 +7,28 @@
  */
 package com.carrotgarden.maven.aws.ssh;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.apache.maven.plugin.MojoFailureException;
 
 /**
- * execute remote ssh commands
+ * execute remote ssh commands;
+ * 
+ * on a single host (sshHost), or on a host list ({@link #sshHosts})
+ * concurrently ({@link #sshParallelism}), optionally in rolling batches
+ * ({@link #sshBatchSize}) which stop once too many hosts fail
+ * ({@link #sshFailureThreshold}); remote output is prefixed by host name,
+ * exit status of every host is checked against sshStatusSuccess
  * 
  * @goal secure-shell-execute
  * 
@@ -31,6 +49,184 @@ public class SecureShellExecute extends SecureShell {
 	 */
 	private String sshCommand;
 
+	/**
+	 * ssh host names; when present, command runs on every host in the list
+	 * instead of sshHost
+	 * 
+	 * @parameter
+	 */
+	private List<String> sshHosts = new ArrayList<String>();
+
+	/**
+	 * name of project.property which, if set dynamically, contains comma
+	 * separated host names to use in addition to {@link #sshHosts}
+	 * 
+	 * @parameter
+	 */
+	private String sshHostsProperty;
+
+	/**
+	 * maximum number of hosts which execute at the same time
+	 * 
+	 * @parameter default-value="10"
+	 */
+	private int sshParallelism;
+
+	/**
+	 * number of hosts per rolling batch; next batch starts when previous batch
+	 * is done; 0 means all hosts in one batch
+	 * 
+	 * @parameter default-value="0"
+	 */
+	private int sshBatchSize;
+
+	/**
+	 * rolling batches stop when number of failed hosts exceeds this value;
+	 * any failed host still fails the goal
+	 * 
+	 * @parameter default-value="0"
+	 */
+	private int sshFailureThreshold;
+
+	protected Set<String> sshHosts() {
+
+		final Set<String> hostSet = new LinkedHashSet<String>();
+
+		if (sshHosts != null) {
+			hostSet.addAll(sshHosts);
+		}
+
+		if (sshHostsProperty != null) {
+			final String text = (String) project().getProperties().get(
+					sshHostsProperty);
+			if (text != null) {
+				for (final String entry : text.split(",")) {
+					if (entry.trim().length() > 0) {
+						hostSet.add(entry.trim());
+					}
+				}
+			}
+		}
+
+		return hostSet;
+
+	}
+
+	/** split host list into rolling batches */
+	static List<List<String>> batchList(final List<String> hostList,
+			final int batchSize) {
+
+		final int size = batchSize > 0 ? batchSize : Math.max(1,
+				hostList.size());
+
+		final List<List<String>> batchList = new ArrayList<List<String>>();
+
+		for (int index = 0; index < hostList.size(); index += size) {
+			batchList.add(new ArrayList<String>(hostList.subList(index,
+					Math.min(index + size, hostList.size()))));
+		}
+
+		return batchList;
+
+	}
+
+	/**
+	 * run command on every host of the batch
+	 * 
+	 * @return host -> exit status; null status means no status due to error
+	 */
+	private Map<String, Integer> executeBatch(final ExecutorService executor,
+			final List<String> batch) throws Exception {
+
+		final Map<String, Future<Integer>> futureMap = new TreeMap<String, Future<Integer>>();
+
+		for (final String host : batch) {
+			futureMap.put(host, executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return newSecureShell(host).execute(sshCommand,
+							"[" + host + "] >>> ");
+				}
+			}));
+		}
+
+		final Map<String, Integer> statusMap = new TreeMap<String, Integer>();
+
+		for (final Map.Entry<String, Future<Integer>> entry : futureMap
+				.entrySet()) {
+			final String host = entry.getKey();
+			try {
+				statusMap.put(host, entry.getValue().get());
+			} catch (final ExecutionException e) {
+				getLog().error("ssh host failure [" + host + "]", e.getCause());
+				statusMap.put(host, null);
+			}
+		}
+
+		return statusMap;
+
+	}
+
+	private void executeHosts(final Set<String> hostSet) throws Exception {
+
+		final List<List<String>> batchList = batchList(
+				new ArrayList<String>(hostSet), sshBatchSize);
+
+		getLog().info(
+				"ssh hosts : " + hostSet.size() + " batches : "
+						+ batchList.size());
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math
+				.max(1, Math.min(sshParallelism, hostSet.size())));
+
+		final Map<String, Integer> statusMap = new TreeMap<String, Integer>();
+
+		final Map<String, Integer> failureMap = new TreeMap<String, Integer>();
+
+		try {
+
+			for (final List<String> batch : batchList) {
+
+				getLog().info("ssh batch : " + batch);
+
+				final Map<String, Integer> batchMap = executeBatch(executor,
+						batch);
+
+				statusMap.putAll(batchMap);
+
+				for (final Map.Entry<String, Integer> entry : batchMap
+						.entrySet()) {
+					if (!isStatusSuccess(entry.getValue())) {
+						failureMap.put(entry.getKey(), entry.getValue());
+					}
+				}
+
+				if (failureMap.size() > sshFailureThreshold) {
+					getLog().error("ssh rollout stopped : " + failureMap);
+					break;
+				}
+
+			}
+
+		} finally {
+
+			executor.shutdownNow();
+
+		}
+
+		getLog().info("ssh status : " + statusMap);
+
+		if (!failureMap.isEmpty()) {
+			throw new IllegalStateException("invalid ssh exit status = "
+					+ failureMap);
+		}
+
+		if (statusMap.size() < hostSet.size()) {
+			throw new IllegalStateException("ssh hosts not executed");
+		}
+
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -41,6 +237,13 @@ public class SecureShellExecute extends SecureShell {
 
 			getLog().info("");
 
+			final Set<String> hostSet = sshHosts();
+
+			if (!hostSet.isEmpty()) {
+				executeHosts(hostSet);
+				return;
+			}
+
 			final CarrotSecureShell ssh = newSecureShell();
 
 			final int status = ssh.execute(sshCommand);
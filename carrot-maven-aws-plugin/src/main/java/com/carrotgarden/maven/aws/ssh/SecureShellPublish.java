@@ -12,7 +12,10 @@ import java.io.File;
 import org.apache.maven.plugin.MojoFailureException;
 
 /**
- * publish directory content via sftp from local to remote system
+ * publish directory content via sftp from local to remote system;
+ * 
+ * either upload the whole tree, only the files changed since last publish,
+ * or a single compressed tar stream ({@link #sshPublishMode})
  * 
  * @goal secure-shell-publish
  * 
@@ -41,6 +44,31 @@ public class SecureShellPublish extends SecureShell {
 	 */
 	private String sshTarget;
 
+	/**
+	 * number of concurrent sftp channels used for upload; sshd limits
+	 * channels per connection, usually to 10
+	 * 
+	 * @parameter default-value="4"
+	 */
+	private int sshPublishChannels;
+
+	/**
+	 * publish mode: "overwrite" uploads every file; "sync" lists remote
+	 * target once and uploads only files which differ by size or mtime, and
+	 * preserves mtime of uploaded files; "tar" streams one gzip tar archive
+	 * into remote "tar -x", best for many small files, needs remote tar
+	 * 
+	 * @parameter default-value="overwrite"
+	 */
+	private String sshPublishMode;
+
+	/**
+	 * in "sync" mode, should delete remote files which have no local source?
+	 * 
+	 * @parameter default-value="false"
+	 */
+	private boolean sshPublishDeleteOrphans;
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -56,7 +84,9 @@ public class SecureShellPublish extends SecureShell {
 			final String source = new File(sshSource).getAbsolutePath();
 			final String target = sshTarget;
 
-			final int status = ssh.publish(source, target);
+			final int status = ssh.publish(source, target,
+					sshPublishChannels, PublishMode.fromValue(sshPublishMode),
+					sshPublishDeleteOrphans);
 
 			assertStatusSuccess(status);
 
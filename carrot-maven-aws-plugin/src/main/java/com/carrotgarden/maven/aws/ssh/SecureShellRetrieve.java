@@ -12,7 +12,10 @@ import java.io.File;
 import org.apache.maven.plugin.MojoFailureException;
 
 /**
- * retrieve directory content via sftp from remote to local system
+ * retrieve directory content via sftp from remote to local system;
+ * 
+ * local files which match remote size and mtime are skipped, partial local
+ * files are resumed
  * 
  * @goal secure-shell-retrieve
  * 
@@ -41,6 +44,14 @@ public class SecureShellRetrieve extends SecureShell {
 	 */
 	private String sshTarget;
 
+	/**
+	 * number of concurrent sftp channels used for download; sshd limits
+	 * channels per connection, usually to 10
+	 * 
+	 * @parameter default-value="4"
+	 */
+	private int sshRetrieveChannels;
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -56,7 +67,8 @@ public class SecureShellRetrieve extends SecureShell {
 			final String source = sshSource;
 			final String target = new File(sshTarget).getAbsolutePath();
 
-			final int status = ssh.retrieve(source, target);
+			final int status = ssh.retrieve(source, target,
+					sshRetrieveChannels);
 
 			assertStatusSuccess(status);
 
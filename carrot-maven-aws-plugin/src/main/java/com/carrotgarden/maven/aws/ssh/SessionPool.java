@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ssh;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.jcraft.jsch.Session;
+
+/**
+ * connected ssh sessions shared by all plug-in executions in a build, keyed
+ * by user, host, port and key file; a session is reused while it passes a
+ * keep alive check, and is replaced otherwise; sessions are closed on jvm
+ * exit
+ */
+public class SessionPool {
+
+	/** creates connected session on pool miss */
+	public static interface Factory {
+
+		Session create() throws Exception;
+
+	}
+
+	private static final Map<String, Session> sessionMap = new HashMap<String, Session>();
+
+	/** one connect at a time per key, different keys in parallel */
+	private static final ConcurrentMap<String, Object> lockMap = new ConcurrentHashMap<String, Object>();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread("ssh-pool-close") {
+			@Override
+			public void run() {
+				closeAll();
+			}
+		});
+	}
+
+	public static String key(final String user, final String host,
+			final int port, final String keyFile) {
+		return user + "@" + host + ":" + port + "/" + keyFile;
+	}
+
+	private static Object lock(final String key) {
+		final Object lock = new Object();
+		final Object past = lockMap.putIfAbsent(key, lock);
+		return past == null ? lock : past;
+	}
+
+	private static boolean isHealthy(final Session session) {
+		if (!session.isConnected()) {
+			return false;
+		}
+		try {
+			session.sendKeepAliveMsg();
+			return true;
+		} catch (final Exception e) {
+			return false;
+		}
+	}
+
+	/** @return healthy pooled session, or new session from factory */
+	public static Session acquire(final String key, final Factory factory)
+			throws Exception {
+
+		synchronized (lock(key)) {
+
+			Session session;
+
+			synchronized (sessionMap) {
+				session = sessionMap.get(key);
+			}
+
+			if (session != null && isHealthy(session)) {
+				return session;
+			}
+
+			if (session != null) {
+				session.disconnect();
+			}
+
+			session = factory.create();
+
+			synchronized (sessionMap) {
+				sessionMap.put(key, session);
+			}
+
+			return session;
+
+		}
+
+	}
+
+	/**
+	 * drop session from the pool after connection failure, unless it was
+	 * already replaced by another user of the same key
+	 */
+	public static void discard(final String key, final Session session) {
+
+		synchronized (sessionMap) {
+			if (sessionMap.get(key) == session) {
+				sessionMap.remove(key);
+			}
+		}
+
+		session.disconnect();
+
+	}
+
+	public static void closeAll() {
+		synchronized (sessionMap) {
+			for (final Session session : sessionMap.values()) {
+				session.disconnect();
+			}
+			sessionMap.clear();
+		}
+	}
+
+	private SessionPool() {
+	}
+
+}
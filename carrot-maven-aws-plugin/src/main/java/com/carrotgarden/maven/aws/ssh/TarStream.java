@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ssh;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * minimal ustar archive writer for regular files; streams straight into the
+ * wrapped output, no temporary files
+ */
+public class TarStream {
+
+	public static final int BLOCK = 512;
+
+	private static final int NAME_SIZE = 100;
+
+	private static final int PREFIX_SIZE = 155;
+
+	/** largest size which fits into 11 octal digits */
+	private static final long SIZE_LIMIT = 077777777777L;
+
+	private static final String CHARSET = "UTF-8";
+
+	private final OutputStream output;
+
+	private final byte[] buffer = new byte[64 * 1024];
+
+	public TarStream(final OutputStream output) {
+		this.output = output;
+	}
+
+	private static void putText(final byte[] header, final int offset,
+			final int size, final String text) throws IOException {
+		final byte[] array = text.getBytes(CHARSET);
+		if (array.length > size) {
+			throw new IllegalArgumentException("tar field too long : " + text);
+		}
+		System.arraycopy(array, 0, header, offset, array.length);
+	}
+
+	/** zero padded octal, terminated by nul */
+	private static void putOctal(final byte[] header, final int offset,
+			final int size, final long value) throws IOException {
+		final StringBuilder text = new StringBuilder(Long.toOctalString(value));
+		while (text.length() < size - 1) {
+			text.insert(0, '0');
+		}
+		putText(header, offset, size - 1, text.toString());
+	}
+
+	/**
+	 * @return {prefix, name} split of a path, per ustar limits
+	 */
+	static String[] splitName(final String path) throws IOException {
+
+		if (path.getBytes(CHARSET).length <= NAME_SIZE) {
+			return new String[] { "", path };
+		}
+
+		int index = path.indexOf('/');
+
+		while (index > 0) {
+			final String prefix = path.substring(0, index);
+			final String name = path.substring(index + 1);
+			if (prefix.getBytes(CHARSET).length > PREFIX_SIZE) {
+				break;
+			}
+			if (name.getBytes(CHARSET).length <= NAME_SIZE) {
+				return new String[] { prefix, name };
+			}
+			index = path.indexOf('/', index + 1);
+		}
+
+		throw new IllegalArgumentException("tar path too long : " + path);
+
+	}
+
+	static byte[] header(final String path, final long size,
+			final long mtime, final int mode) throws IOException {
+
+		if (size > SIZE_LIMIT) {
+			throw new IllegalArgumentException("tar file too large : " + path);
+		}
+
+		final String[] split = splitName(path);
+
+		final byte[] header = new byte[BLOCK];
+
+		putText(header, 0, 100, split[1]);
+		putOctal(header, 100, 8, mode);
+		putOctal(header, 108, 8, 0);
+		putOctal(header, 116, 8, 0);
+		putOctal(header, 124, 12, size);
+		putOctal(header, 136, 12, mtime);
+		header[156] = '0';
+		putText(header, 257, 6, "ustar");
+		putText(header, 263, 2, "00");
+		putText(header, 345, 155, split[0]);
+
+		/** checksum is computed with its own field as spaces */
+		for (int index = 148; index < 156; index++) {
+			header[index] = ' ';
+		}
+
+		long checksum = 0;
+		for (final byte value : header) {
+			checksum += value & 0xFF;
+		}
+
+		/** six digits, nul, space */
+		putOctal(header, 148, 7, checksum);
+		header[154] = 0;
+
+		return header;
+
+	}
+
+	/**
+	 * append regular file
+	 * 
+	 * @param path
+	 *            relative path inside the archive
+	 */
+	public void putFile(final File file, final String path) throws IOException {
+
+		final long size = file.length();
+
+		final int mode = file.canExecute() ? 0755 : 0644;
+
+		output.write(header(path, size, file.lastModified() / 1000, mode));
+
+		final InputStream input = new FileInputStream(file);
+
+		long count = 0;
+
+		try {
+			while (true) {
+				final int length = input.read(buffer);
+				if (length < 0) {
+					break;
+				}
+				output.write(buffer, 0, length);
+				count += length;
+			}
+		} finally {
+			input.close();
+		}
+
+		if (count != size) {
+			throw new IOException("file changed during archive : " + file);
+		}
+
+		final int tail = (int) (size % BLOCK);
+
+		if (tail > 0) {
+			output.write(new byte[BLOCK - tail]);
+		}
+
+	}
+
+	/** write end of archive marker; does not close wrapped output */
+	public void finish() throws IOException {
+		output.write(new byte[2 * BLOCK]);
+		output.flush();
+	}
+
+}
@@ -27,6 +27,9 @@ import org.codehaus.jackson.map.ObjectMapper;
 
 public class Util {
 
+	/** shared json mapper; thread safe once configured */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
 	public static void assertNotNull(final Object instance, final String message) {
 		if (instance == null) {
 			throw new IllegalStateException(message);
@@ -105,9 +108,14 @@ public class Util {
 	public static <T> T jsonLoad(final File file, final Class<T> klaz)
 			throws Exception {
 
-		final ObjectMapper mapper = new ObjectMapper();
+		return MAPPER.readValue(file, klaz);
+
+	}
+
+	public static <T> T jsonLoad(final String text, final Class<T> klaz)
+			throws Exception {
 
-		return mapper.readValue(file, klaz);
+		return MAPPER.readValue(text, klaz);
 
 	}
 
@@ -8,21 +8,25 @@
 package com.carrotgarden.maven.aws.cfn;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
+import org.junit.Test;
 import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackStatus;
 
 public class TestCarrotCloudForm {
 
-	Logger logger = LoggerFactory.getLogger(TestCarrotCloudForm.class);
+	/** maven slf4j binding is not available outside of maven */
+	Logger logger = mock(Logger.class);
 
 	// @Test
 	public void testStack() throws Exception {
@@ -57,4 +61,59 @@ public class TestCarrotCloudForm {
 
 	}
 
+	@Test
+	public void testFingerprint() throws Exception {
+
+		final String stackTemplate = "{ \"Parameters\" : { " //
+				+ "\"Size\" : { \"Type\" : \"String\", \"Default\" : \"small\" }, " //
+				+ "\"Zone\" : { \"Type\" : \"String\" } } }";
+
+		final AWSCredentials credentials = new BasicAWSCredentials("", "");
+
+		final Map<String, String> paramsOne = new HashMap<String, String>();
+		paramsOne.put("Zone", "us-east-1a");
+
+		final Map<String, String> paramsTwo = new HashMap<String, String>();
+		paramsTwo.put("Zone", "us-east-1a");
+		paramsTwo.put("Size", "small");
+
+		final Map<String, String> paramsThree = new HashMap<String, String>();
+		paramsThree.put("Zone", "us-east-1a");
+		paramsThree.put("Size", "large");
+
+		final String endpoint = "https://cloudformation.us-east-1.amazonaws.com";
+
+		final String one = new CarrotCloudForm(logger, "stack", stackTemplate,
+				paramsOne, 0, credentials, endpoint).fingerprintLocal();
+
+		final String two = new CarrotCloudForm(logger, "stack", stackTemplate,
+				paramsTwo, 0, credentials, endpoint).fingerprintLocal();
+
+		final String three = new CarrotCloudForm(logger, "stack",
+				stackTemplate, paramsThree, 0, credentials, endpoint)
+				.fingerprintLocal();
+
+		assertEquals(one, two);
+		assertFalse(one.equals(three));
+
+	}
+
+	@Test
+	public void testSkipAllowed() throws Exception {
+
+		assertTrue(CarrotCloudForm.isSkipAllowed(new Stack()
+				.withStackStatus(StackStatus.CREATE_COMPLETE)));
+		assertTrue(CarrotCloudForm.isSkipAllowed(new Stack()
+				.withStackStatus(StackStatus.UPDATE_COMPLETE)));
+
+		/** matching fingerprint on rolled back stack still goes to update */
+		assertFalse(CarrotCloudForm.isSkipAllowed(new Stack()
+				.withStackStatus(StackStatus.UPDATE_ROLLBACK_COMPLETE)));
+		assertFalse(CarrotCloudForm.isSkipAllowed(new Stack()
+				.withStackStatus(StackStatus.ROLLBACK_COMPLETE)));
+		assertFalse(CarrotCloudForm.isSkipAllowed(new Stack()
+				.withStackStatus(StackStatus.UPDATE_ROLLBACK_FAILED)));
+
+	}
+
 }
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.cfn;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class TestStackGraph {
+
+	private static Set<String> set(final String... names) {
+		return new HashSet<String>(Arrays.asList(names));
+	}
+
+	private static Map<String, Set<String>> diamond() {
+		final Map<String, Set<String>> map = new TreeMap<String, Set<String>>();
+		map.put("network", set());
+		map.put("security", set());
+		map.put("database", set("network", "security"));
+		map.put("server", set("network"));
+		map.put("balancer", set("server", "database"));
+		return map;
+	}
+
+	@Test
+	public void testTopological() throws Exception {
+
+		final StackGraph graph = new StackGraph(diamond());
+
+		final List<String> order = graph.topological();
+
+		assertEquals(5, order.size());
+
+		assertTrue(order.indexOf("network") < order.indexOf("database"));
+		assertTrue(order.indexOf("security") < order.indexOf("database"));
+		assertTrue(order.indexOf("network") < order.indexOf("server"));
+		assertTrue(order.indexOf("server") < order.indexOf("balancer"));
+		assertTrue(order.indexOf("database") < order.indexOf("balancer"));
+
+		assertEquals(Arrays.asList("network", "security"), graph.roots());
+
+	}
+
+	@Test
+	public void testReleased() throws Exception {
+
+		final StackGraph graph = new StackGraph(diamond());
+
+		assertEquals(Arrays.asList("server"),
+				graph.released("network", set("network")));
+
+		assertEquals(Arrays.asList("database", "server"),
+				graph.released("network", set("network", "security")));
+
+		assertEquals(set("database", "server", "balancer"),
+				graph.transitiveDownstream("network"));
+
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCycle() throws Exception {
+
+		final Map<String, Set<String>> map = diamond();
+		map.put("network", set("balancer"));
+
+		new StackGraph(map);
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknown() throws Exception {
+
+		final Map<String, Set<String>> map = diamond();
+		map.put("server", set("missing"));
+
+		new StackGraph(map);
+
+	}
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.cfn;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class TestTemplateCache {
+
+	@Test
+	public void testLoad() throws Exception {
+
+		final File file = File.createTempFile("cache-", ".template");
+		file.deleteOnExit();
+
+		FileUtils.writeStringToFile(file, "{ \"Parameters\" : { \"One\" : {} }, "
+				+ "\"Outputs\" : { \"Two\" : {} }, \"Description\" : \"x\" }");
+
+		final TemplateCache.Entry one = TemplateCache.load(file);
+
+		assertTrue(one.sectionNames("Parameters").contains("One"));
+		assertTrue(one.sectionNames("Outputs").contains("Two"));
+		assertTrue(one.sectionNames("Description").isEmpty());
+		assertTrue(one.sectionNames("Resources").isEmpty());
+
+		assertSame(one, TemplateCache.load(file));
+
+		FileUtils.writeStringToFile(file,
+				"{ \"Parameters\" : { \"One\" : {}, \"Three\" : {} } }");
+
+		final TemplateCache.Entry two = TemplateCache.load(file);
+
+		assertNotSame(one, two);
+		assertTrue(two.sectionNames("Parameters").contains("Three"));
+
+	}
+
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.dns;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.amazonaws.services.route53.model.Change;
+import com.amazonaws.services.route53.model.ChangeAction;
+import com.amazonaws.services.route53.model.ResourceRecord;
+import com.amazonaws.services.route53.model.ResourceRecordSet;
+
+public class TestCarrotRoute53 {
+
+	@Test
+	public void testSameName() throws Exception {
+
+		assertTrue(CarrotRoute53.isSameName("Host.Example.com",
+				"host.example.com."));
+		assertTrue(CarrotRoute53.isSameName("*.example.com.",
+				"\\052.example.com."));
+
+		assertFalse(CarrotRoute53.isSameName("host.example.com.",
+				"host.example.org."));
+
+	}
+
+	private static List<Change> group(final int size) {
+		final List<Change> group = new ArrayList<Change>();
+		for (int index = 0; index < size; index++) {
+			group.add(new Change().withAction(ChangeAction.CREATE));
+		}
+		return group;
+	}
+
+	@Test
+	public void testBatchList() throws Exception {
+
+		final List<List<Change>> groupList = new ArrayList<List<Change>>();
+		groupList.add(group(2));
+		groupList.add(group(2));
+		groupList.add(group(1));
+		groupList.add(group(2));
+
+		final List<List<Change>> batchList = CarrotRoute53.batchList(
+				groupList, 4);
+
+		assertEquals(2, batchList.size());
+		assertEquals(4, batchList.get(0).size());
+		assertEquals(3, batchList.get(1).size());
+
+	}
+
+	@Test
+	public void testSameRecord() throws Exception {
+
+		final ResourceRecordSet one = new ResourceRecordSet()
+				.withName("api.example.com.").withType("CNAME").withTTL(60L)
+				.withResourceRecords(new ResourceRecord("target.example.com."));
+
+		final ResourceRecordSet two = new ResourceRecordSet()
+				.withName("API.example.com.").withType("CNAME").withTTL(60L)
+				.withResourceRecords(new ResourceRecord("Target.example.com."));
+
+		assertTrue(CarrotRoute53.isSameRecord(one, two));
+
+		two.setTTL(300L);
+
+		assertFalse(CarrotRoute53.isSameRecord(one, two));
+
+	}
+
+	@Test
+	public void testSameRecordText() throws Exception {
+
+		final ResourceRecordSet one = new ResourceRecordSet()
+				.withName("example.com.").withType("TXT").withTTL(60L)
+				.withResourceRecords(new ResourceRecord("\"Token=abc\""));
+
+		final ResourceRecordSet two = new ResourceRecordSet()
+				.withName("example.com.").withType("TXT").withTTL(60L)
+				.withResourceRecords(new ResourceRecord("\"token=ABC\""));
+
+		assertFalse(CarrotRoute53.isSameRecord(one, two));
+
+	}
+
+	private static ResourceRecordSet record(final String name,
+			final String type, final String value) {
+		return new ResourceRecordSet().withName(name).withType(type)
+				.withTTL(60L).withResourceRecords(new ResourceRecord(value));
+	}
+
+	@Test
+	public void testDiffZone() throws Exception {
+
+		final List<ResourceRecordSet> currentList = Arrays.asList( //
+				record("example.com.", "SOA", "ns-1.example.net. x"), //
+				record("example.com.", "NS", "ns-1.example.net."), //
+				record("same.example.com.", "A", "10.0.0.1"), //
+				record("edit.example.com.", "A", "10.0.0.2"), //
+				record("gone.example.com.", "A", "10.0.0.3") //
+				);
+
+		final List<ResourceRecordSet> desiredList = Arrays.asList( //
+				record("same.example.com.", "A", "10.0.0.1"), //
+				record("edit.example.com.", "A", "10.0.0.4"), //
+				record("new.example.com.", "CNAME", "same.example.com.") //
+				);
+
+		final List<List<Change>> keepList = CarrotRoute53.diffZone(
+				"example.com.", currentList, desiredList, false);
+
+		assertEquals(2, keepList.size());
+
+		final List<List<Change>> pruneList = CarrotRoute53.diffZone(
+				"example.com.", currentList, desiredList, true);
+
+		assertEquals(3, pruneList.size());
+
+		/** deletes go first; SOA and apex NS are kept */
+		assertEquals(1, pruneList.get(0).size());
+		assertEquals("DELETE", pruneList.get(0).get(0).getAction());
+		assertEquals("gone.example.com.", pruneList.get(0).get(0)
+				.getResourceRecordSet().getName());
+
+	}
+
+	@Test
+	public void testChangeId() throws Exception {
+		assertEquals("C2682N5HXP0BZ4",
+				CarrotRoute53.changeId("/change/C2682N5HXP0BZ4"));
+		assertEquals("C2682N5HXP0BZ4", CarrotRoute53.changeId("C2682N5HXP0BZ4"));
+	}
+
+}
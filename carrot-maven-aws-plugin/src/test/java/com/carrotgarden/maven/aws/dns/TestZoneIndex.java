@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.dns;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.amazonaws.services.route53.model.HostedZone;
+
+public class TestZoneIndex {
+
+	private static HostedZone zone(final String id, final String name) {
+		return new HostedZone().withId(id).withName(name);
+	}
+
+	@Test
+	public void testFind() throws Exception {
+
+		final ZoneIndex index = new ZoneIndex(Arrays.asList( //
+				zone("Z1", "example.com."), //
+				zone("Z2", "a.example.com."), //
+				zone("Z3", "example.org.") //
+				));
+
+		assertEquals("Z1", index.find("host.example.com.").getId());
+		assertEquals("Z1", index.find("example.com.").getId());
+		assertEquals("Z2", index.find("host.a.example.com.").getId());
+		assertEquals("Z2", index.find("HOST.A.Example.com").getId());
+		assertEquals("Z3", index.find("www.example.org.").getId());
+
+		assertNull(index.find("badexample.com."));
+		assertNull(index.find("example.net."));
+
+		assertEquals(3, index.zoneList().size());
+
+	}
+
+}
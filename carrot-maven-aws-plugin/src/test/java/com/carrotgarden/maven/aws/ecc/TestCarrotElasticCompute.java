@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ecc;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.services.ec2.model.BlockDeviceMapping;
+import com.amazonaws.services.ec2.model.EbsBlockDevice;
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.Image;
+import com.amazonaws.services.ec2.model.Snapshot;
+import com.amazonaws.services.ec2.model.Tag;
+
+public class TestCarrotElasticCompute {
+
+	@Test
+	public void testFilterList() throws Exception {
+
+		final List<Filter> filterList = CarrotElasticCompute.filterList(
+				"is-public=false;tag:Name=one,two", ";", "=", ",");
+
+		assertEquals(2, filterList.size());
+
+		assertEquals("is-public", filterList.get(0).getName());
+		assertEquals("tag:Name", filterList.get(1).getName());
+		assertEquals(2, filterList.get(1).getValues().size());
+
+		assertTrue(CarrotElasticCompute.filterList("", ";", "=", ",")
+				.isEmpty());
+
+	}
+
+	@Test
+	public void testSearchValue() throws Exception {
+
+		final Image image = new Image().withImageId("ami-12345678")
+				.withName("role-server").withTags(new Tag("Name", "server"));
+
+		assertEquals("role-server",
+				CarrotElasticCompute.searchValue(image, "name"));
+		assertEquals("server",
+				CarrotElasticCompute.searchValue(image, "tag:Name"));
+		assertNull(CarrotElasticCompute.searchValue(image, "tag:Role"));
+		assertEquals(image.toString(),
+				CarrotElasticCompute.searchValue(image, "toString"));
+
+	}
+
+	private static Image image(final String imageId, final String group,
+			final String snapshotId) {
+		return new Image()
+				.withImageId(imageId)
+				.withTags(new Tag("Name", group))
+				.withBlockDeviceMappings(
+						new BlockDeviceMapping().withEbs(new EbsBlockDevice()
+								.withSnapshotId(snapshotId)));
+	}
+
+	private static Snapshot snapshot(final String snapshotId, final long time) {
+		return new Snapshot().withSnapshotId(snapshotId)
+				.withStartTime(new Date(time)).withVolumeSize(8);
+	}
+
+	@Test
+	public void testImagePruneList() throws Exception {
+
+		final List<Image> imageList = Arrays.asList( //
+				image("ami-1", "server", "snap-1"), //
+				image("ami-2", "server", "snap-2"), //
+				image("ami-3", "server", "snap-3"), //
+				image("ami-4", "client", "snap-4"), //
+				image("ami-5", "server", "snap-missing") //
+				);
+
+		final Map<String, Snapshot> snapshotMap = new HashMap<String, Snapshot>();
+		snapshotMap.put("snap-1", snapshot("snap-1", 1000));
+		snapshotMap.put("snap-2", snapshot("snap-2", 3000));
+		snapshotMap.put("snap-3", snapshot("snap-3", 2000));
+		snapshotMap.put("snap-4", snapshot("snap-4", 500));
+
+		final List<Image> pruneList = CarrotElasticCompute.imagePruneList(
+				imageList, snapshotMap, "tag:Name", 2);
+
+		assertEquals(1, pruneList.size());
+		assertEquals("ami-1", pruneList.get(0).getImageId());
+
+		assertEquals(8, CarrotElasticCompute.imageSize(imageList.get(0),
+				snapshotMap));
+
+		try {
+			CarrotElasticCompute.imagePruneList(imageList, snapshotMap,
+					"tag:Name", 0);
+			fail("expected failure");
+		} catch (final IllegalArgumentException e) {
+			assertTrue(true);
+		}
+
+	}
+
+	@Test
+	public void testImagePruneUntagged() throws Exception {
+
+		final List<Image> imageList = Arrays.asList( //
+				image("ami-1", "", "snap-1"), //
+				image("ami-2", "", "snap-2"), //
+				image("ami-3", "", "snap-3") //
+				);
+
+		final Map<String, Snapshot> snapshotMap = new HashMap<String, Snapshot>();
+		snapshotMap.put("snap-1", snapshot("snap-1", 1000));
+		snapshotMap.put("snap-2", snapshot("snap-2", 3000));
+		snapshotMap.put("snap-3", snapshot("snap-3", 2000));
+
+		assertTrue(CarrotElasticCompute.imagePruneList(imageList, snapshotMap,
+				"tag:Name", 1).isEmpty());
+
+		assertTrue(CarrotElasticCompute.imagePruneList(imageList, snapshotMap,
+				"tag:Role", 1).isEmpty());
+
+	}
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ecc;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.model.DescribeImagesRequest;
+import com.amazonaws.services.ec2.model.DescribeImagesResult;
+
+public class TestComputeRetry {
+
+	private static AmazonServiceException error(final String code) {
+		final AmazonServiceException error = new AmazonServiceException(code);
+		error.setErrorCode(code);
+		return error;
+	}
+
+	@Test
+	public void testRetry() throws Exception {
+
+		final AmazonEC2 client = mock(AmazonEC2.class);
+
+		final DescribeImagesResult result = new DescribeImagesResult();
+
+		when(client.describeImages(any(DescribeImagesRequest.class)))
+				.thenThrow(error("InvalidAMIID.NotFound"))
+				.thenThrow(error("RequestLimitExceeded")).thenReturn(result);
+
+		final ComputeRetry retry = new ComputeRetry(mock(Logger.class), 5, 1,
+				10);
+
+		final AmazonEC2 proxy = retry.wrap(client);
+
+		assertSame(result, proxy.describeImages(new DescribeImagesRequest()));
+
+		verify(client, times(3)).describeImages(
+				any(DescribeImagesRequest.class));
+
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+
+		final AmazonEC2 client = mock(AmazonEC2.class);
+
+		when(client.describeImages(any(DescribeImagesRequest.class)))
+				.thenThrow(error("AuthFailure"));
+
+		final ComputeRetry retry = new ComputeRetry(mock(Logger.class), 5, 1,
+				10);
+
+		try {
+			retry.wrap(client).describeImages(new DescribeImagesRequest());
+			fail("expected failure");
+		} catch (final AmazonServiceException e) {
+			assertEquals("AuthFailure", e.getErrorCode());
+		}
+
+		verify(client, times(1)).describeImages(
+				any(DescribeImagesRequest.class));
+
+	}
+
+	@Test
+	public void testBackoff() throws Exception {
+
+		final ComputeRetry retry = new ComputeRetry(mock(Logger.class), 5,
+				100, 1000);
+
+		for (int attempt = 1; attempt < 50; attempt++) {
+			final long pause = retry.backoff(attempt);
+			assertTrue(pause >= 0);
+			assertTrue(pause <= 1000);
+		}
+
+		assertTrue(retry.backoff(1) <= 100);
+
+	}
+
+	@Test
+	public void testIdempotent() throws Exception {
+
+		assertTrue(ComputeRetry.isRetryable("describeImages",
+				error("InternalError")));
+		assertTrue(ComputeRetry.isRetryable("createImage",
+				error("RequestLimitExceeded")));
+
+		assertFalse(ComputeRetry.isRetryable("createImage",
+				error("InternalError")));
+		assertFalse(ComputeRetry.isRetryable("copyImage",
+				error("Unavailable")));
+		assertFalse(ComputeRetry.isRetryable("describeImages",
+				error("InvalidID")));
+
+		assertTrue(ComputeRetry.isRetryable("describeSnapshots",
+				error("InvalidSnapshot.NotFound")));
+		assertFalse(ComputeRetry.isRetryable("deleteSnapshot",
+				error("InvalidSnapshot.NotFound")));
+		assertFalse(ComputeRetry.isRetryable("createTags",
+				error("InvalidInstanceID.NotFound")));
+		assertTrue(ComputeRetry.isRetryable("deleteSnapshot",
+				error("InvalidSnapshot.InUse")));
+
+	}
+
+}
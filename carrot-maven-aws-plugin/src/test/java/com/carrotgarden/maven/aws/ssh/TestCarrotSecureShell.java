@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ssh;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import com.carrotgarden.maven.aws.ssh.PathMaker.Entry;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.SftpException;
+
+public class TestCarrotSecureShell {
+
+	private static Entry entry(final int size) throws Exception {
+		final File file = File.createTempFile("entry-", ".bin");
+		file.deleteOnExit();
+		FileUtils.writeByteArrayToFile(file, new byte[size]);
+		return new Entry(file.getAbsolutePath(), "/tmp/" + file.getName());
+	}
+
+	@Test
+	public void testSortBySize() throws Exception {
+
+		final List<Entry> entryList = new ArrayList<Entry>();
+		entryList.add(entry(10));
+		entryList.add(entry(1000));
+		entryList.add(entry(100));
+
+		CarrotSecureShell.sortBySizeDescending(entryList);
+
+		assertEquals(1000, new File(entryList.get(0).source).length());
+		assertEquals(100, new File(entryList.get(1).source).length());
+		assertEquals(10, new File(entryList.get(2).source).length());
+
+	}
+
+	@Test
+	public void testFolderSet() throws Exception {
+
+		final List<Entry> entryList = new ArrayList<Entry>();
+		entryList.add(new Entry("a/b/1.txt", "/opt/app/a/b/1.txt"));
+		entryList.add(new Entry("a/2.txt", "/opt/app/a/2.txt"));
+		entryList.add(new Entry("a/b/3.txt", "/opt/app/a/b/3.txt"));
+		entryList.add(new Entry("4.txt", "/opt/app/4.txt"));
+
+		final Set<String> folderSet = CarrotSecureShell.folderSet("/opt/app",
+				entryList);
+
+		assertEquals(3, folderSet.size());
+
+		final Iterator<String> iter = folderSet.iterator();
+		assertEquals("/opt/app", iter.next());
+		assertEquals("/opt/app/a", iter.next());
+		assertEquals("/opt/app/a/b", iter.next());
+
+	}
+
+	@Test
+	public void testParentFolder() throws Exception {
+		assertEquals("/opt", CarrotSecureShell.parentFolder("/opt/file"));
+		assertEquals("/", CarrotSecureShell.parentFolder("/file"));
+	}
+
+	@Test
+	public void testDeltaList() throws Exception {
+
+		final File file = File.createTempFile("delta-", ".bin");
+		file.deleteOnExit();
+		FileUtils.writeByteArrayToFile(file, new byte[10]);
+
+		final int mtime = (int) (file.lastModified() / 1000);
+
+		final Entry same = new Entry(file.getAbsolutePath(), "/opt//same.bin");
+		final Entry size = new Entry(file.getAbsolutePath(), "/opt/size.bin");
+		final Entry time = new Entry(file.getAbsolutePath(), "/opt/time.bin");
+		final Entry none = new Entry(file.getAbsolutePath(), "/opt/none.bin");
+		final Entry root = new Entry(file.getAbsolutePath(),
+				"/tmp//publish/root.bin");
+
+		final List<Entry> entryList = new ArrayList<Entry>();
+		entryList.add(same);
+		entryList.add(size);
+		entryList.add(time);
+		entryList.add(none);
+		entryList.add(root);
+
+		final Map<String, PathLister.Remote> remoteMap = new TreeMap<String, PathLister.Remote>();
+		remote(remoteMap, "/opt/same.bin", 10, mtime);
+		remote(remoteMap, "/opt/size.bin", 11, mtime);
+		remote(remoteMap, "/opt/time.bin", 10, mtime - 1);
+		remote(remoteMap, "/opt/orphan.bin", 10, mtime);
+
+		/** lister keys from non normalized publish root */
+		final String rootPath = PathLister.makePath("/tmp//publish/",
+				"root.bin");
+		assertEquals("/tmp/publish/root.bin", rootPath);
+		remote(remoteMap, rootPath, 10, mtime);
+
+		final List<Entry> deltaList = CarrotSecureShell.deltaList(entryList,
+				remoteMap);
+
+		assertEquals(3, deltaList.size());
+		assertFalse(deltaList.contains(same));
+		assertFalse(deltaList.contains(root));
+
+		final List<String> orphanList = CarrotSecureShell.orphanList(
+				entryList, remoteMap);
+
+		assertEquals(1, orphanList.size());
+		assertEquals("/opt/orphan.bin", orphanList.get(0));
+
+	}
+
+	private static void remote(final Map<String, PathLister.Remote> remoteMap,
+			final String path, final long size, final int mtime) {
+		remoteMap.put(path, new PathLister.Remote(path, size, mtime));
+	}
+
+	@Test
+	public void testPublishMode() throws Exception {
+		assertEquals(PublishMode.OVERWRITE, PublishMode.fromValue(null));
+		assertEquals(PublishMode.SYNC, PublishMode.fromValue("sync"));
+		assertEquals(PublishMode.OVERWRITE, PublishMode.fromValue("Overwrite"));
+	}
+
+	@Test
+	public void testTarName() throws Exception {
+		assertEquals("a/b.txt",
+				CarrotSecureShell.tarName("/opt/app", "/opt/app/a/b.txt"));
+		assertEquals("b.txt",
+				CarrotSecureShell.tarName("/opt/app/", "/opt/app//b.txt"));
+		assertEquals("'/opt/it'\\''s'",
+				CarrotSecureShell.shellQuote("/opt/it's"));
+	}
+
+	@Test
+	public void testSessionFailure() throws Exception {
+
+		assertTrue(CarrotSecureShell.isSessionFailure(new IllegalStateException(
+				"sftp upload failed", new JSchException("session is down"))));
+
+		assertTrue(CarrotSecureShell.isSessionFailure(new SftpException(
+				ChannelSftp.SSH_FX_CONNECTION_LOST, "lost")));
+
+		assertFalse(CarrotSecureShell.isSessionFailure(new SftpException(
+				ChannelSftp.SSH_FX_PERMISSION_DENIED, "denied")));
+
+	}
+
+}
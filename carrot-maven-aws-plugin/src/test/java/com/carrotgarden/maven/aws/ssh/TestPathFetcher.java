@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ssh;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import com.jcraft.jsch.ChannelSftp;
+
+public class TestPathFetcher {
+
+	private static File local(final int size, final int mtime)
+			throws Exception {
+		final File file = File.createTempFile("fetch-", ".bin");
+		file.deleteOnExit();
+		FileUtils.writeByteArrayToFile(file, new byte[size]);
+		file.setLastModified(mtime * 1000L);
+		return file;
+	}
+
+	private static PathLister.Remote remote(final long size, final int mtime) {
+		return new PathLister.Remote("/remote/file", size, mtime);
+	}
+
+	@Test
+	public void testIsCurrent() throws Exception {
+
+		final File file = local(10, 1000000);
+
+		assertTrue(PathFetcher.isCurrent(file, remote(10, 1000000)));
+		assertFalse(PathFetcher.isCurrent(file, remote(11, 1000000)));
+		assertFalse(PathFetcher.isCurrent(file, remote(10, 1000001)));
+		assertFalse(PathFetcher.isCurrent(new File(file + ".none"),
+				remote(10, 1000000)));
+
+	}
+
+	@Test
+	public void testTransferMode() throws Exception {
+
+		/** interrupted: written after remote change */
+		assertEquals(ChannelSftp.RESUME, PathFetcher.transferMode(
+				local(10, 2000000), remote(20, 1000000)));
+
+		/** stale complete copy of older remote */
+		assertEquals(ChannelSftp.OVERWRITE, PathFetcher.transferMode(
+				local(10, 500000), remote(20, 1000000)));
+
+		/** longer than remote */
+		assertEquals(ChannelSftp.OVERWRITE, PathFetcher.transferMode(
+				local(30, 2000000), remote(20, 1000000)));
+
+	}
+
+	@Test
+	public void testFetchList() throws Exception {
+
+		final File folder = new File("./target/fetch");
+
+		final Map<String, PathLister.Remote> remoteMap = new TreeMap<String, PathLister.Remote>();
+		remoteMap.put("/remote/a/small", new PathLister.Remote(
+				"/remote/a/small", 10, 1000000));
+		remoteMap.put("/remote/large", new PathLister.Remote("/remote/large",
+				1000, 1000000));
+
+		final List<PathFetcher.Fetch> fetchList = PathFetcher.fetchList(
+				"/remote/", folder, remoteMap);
+
+		assertEquals(2, fetchList.size());
+		assertEquals(new File(folder, "large"), fetchList.get(0).local);
+		assertEquals(new File(folder, "a/small"), fetchList.get(1).local);
+
+	}
+
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ssh;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestSecureShellExecute {
+
+	private static final List<String> HOSTS = Arrays.asList("one", "two",
+			"three", "four", "five");
+
+	@Test
+	public void testBatchList() throws Exception {
+
+		final List<List<String>> batchList = SecureShellExecute.batchList(
+				HOSTS, 2);
+
+		assertEquals(3, batchList.size());
+		assertEquals(Arrays.asList("one", "two"), batchList.get(0));
+		assertEquals(Arrays.asList("three", "four"), batchList.get(1));
+		assertEquals(Arrays.asList("five"), batchList.get(2));
+
+	}
+
+	@Test
+	public void testBatchListSingle() throws Exception {
+
+		final List<List<String>> batchList = SecureShellExecute.batchList(
+				HOSTS, 0);
+
+		assertEquals(1, batchList.size());
+		assertEquals(HOSTS, batchList.get(0));
+
+	}
+
+}
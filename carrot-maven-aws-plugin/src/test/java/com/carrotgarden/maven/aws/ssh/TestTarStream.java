@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2010-2012 Andrei Pozolotin <Andrei.Pozolotin@gmail.com>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.carrotgarden.maven.aws.ssh;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class TestTarStream {
+
+	private static String text(final byte[] array, final int offset,
+			final int size) throws Exception {
+		int length = 0;
+		while (length < size && array[offset + length] != 0) {
+			length++;
+		}
+		return new String(array, offset, length, "UTF-8");
+	}
+
+	@Test
+	public void testHeader() throws Exception {
+
+		final byte[] header = TarStream.header("dir/file.txt", 1234, 5678,
+				0644);
+
+		assertEquals(TarStream.BLOCK, header.length);
+
+		assertEquals("dir/file.txt", text(header, 0, 100));
+		assertEquals(1234, Long.parseLong(text(header, 124, 12), 8));
+		assertEquals(5678, Long.parseLong(text(header, 136, 12), 8));
+		assertEquals("ustar", text(header, 257, 6));
+
+		final long checksum = Long.parseLong(text(header, 148, 8), 8);
+
+		long expected = 0;
+		for (int index = 0; index < header.length; index++) {
+			if (index >= 148 && index < 156) {
+				expected += ' ';
+			} else {
+				expected += header[index] & 0xFF;
+			}
+		}
+
+		assertEquals(expected, checksum);
+
+	}
+
+	@Test
+	public void testSplitName() throws Exception {
+
+		final StringBuilder folder = new StringBuilder();
+		for (int index = 0; index < 12; index++) {
+			folder.append("folder-").append(index).append("/");
+		}
+
+		final String path = folder + "file.txt";
+
+		assertTrue(path.length() > 100);
+
+		final String[] split = TarStream.splitName(path);
+
+		assertEquals(path, split[0] + "/" + split[1]);
+		assertTrue(split[1].length() <= 100);
+
+	}
+
+	@Test
+	public void testPutFile() throws Exception {
+
+		final File file = File.createTempFile("tar-", ".bin");
+		file.deleteOnExit();
+		FileUtils.writeByteArrayToFile(file, new byte[700]);
+
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		final TarStream tar = new TarStream(output);
+		tar.putFile(file, "one.bin");
+		tar.finish();
+
+		/** header, two data blocks, end marker */
+		assertEquals(5 * TarStream.BLOCK, output.size());
+
+	}
+
+}